@@ -185,6 +185,31 @@ public class VersionWrapper implements dev.wuason.nms.wrappers.VersionWrapper {
             anvilMenu.repairItemCountCost = cost;
         }
 
+        @Override
+        public void setRenameListener(Consumer<String> listener) {
+            removeRenameListener();
+            ChannelPipeline pipeline = serverPlayer.connection.connection.channel.pipeline();
+            pipeline.addBefore("packet_handler", DataInfo.NAMESPACE_ANVIL_RENAME, new ChannelInboundHandlerAdapter() {
+                        @Override
+                        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+                            if (msg instanceof ServerboundRenameItemPacket && serverPlayer.containerMenu == anvilMenu) {
+                                listener.accept(((ServerboundRenameItemPacket) msg).getName());
+                            }
+                            super.channelRead(ctx, msg);
+                        }
+                    }
+            );
+        }
+
+        @Override
+        public void removeRenameListener() {
+            ChannelPipeline pipeline = serverPlayer.connection.connection.channel.pipeline();
+            try {
+                if (pipeline.get(DataInfo.NAMESPACE_ANVIL_RENAME) != null) pipeline.remove(DataInfo.NAMESPACE_ANVIL_RENAME);
+            } catch (NoSuchElementException ignored) {
+            }
+        }
+
         @Override
         public void setRenameText(String renameText){
             anvilMenu.itemName = renameText;
@@ -252,6 +277,12 @@ public class VersionWrapper implements dev.wuason.nms.wrappers.VersionWrapper {
         serverPlayer.connection.send(new ClientboundContainerClosePacket(serverPlayer.containerMenu.containerId));
     }
 
+    @Override
+    public void sendContainerContent(Player player) {
+        ServerPlayer serverPlayer = ((CraftPlayer) player).getHandle();
+        serverPlayer.containerMenu.sendAllDataToRemote();
+    }
+
     @Override
     public void openSing(Player player, String[] defLines, Consumer<String[]> onSend){
         if(defLines.length != 4) throw new IllegalArgumentException("The length of the lines must be 4");
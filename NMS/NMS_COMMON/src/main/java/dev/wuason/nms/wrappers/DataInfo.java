@@ -1,3 +1,4 @@
 package dev.wuason.nms.wrappers;public class DataInfo {
     public static final String NAMESPACE_SIGN = "MechanicsSignEdit";
+    public static final String NAMESPACE_ANVIL_RENAME = "MechanicsAnvilRename";
 }
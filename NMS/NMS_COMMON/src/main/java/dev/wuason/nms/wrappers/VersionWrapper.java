@@ -35,12 +35,26 @@ public interface VersionWrapper {
         public void setTitle(String title);
 
         public void setCheckReachable(boolean r);
+
+        /**
+         * Listens to the rename packets sent by the player while this anvil is open, replacing the previous listener.
+         * The listener is called on the netty thread with the text sent by the client.
+         */
+        public void setRenameListener(Consumer<String> listener);
+
+        public void removeRenameListener();
     }
 
     public void updateCurrentInventoryTitle(String jsonTitle, Player player);
 
     public void sendCloseInventoryPacket(Player player);
 
+    /**
+     * Sends the whole content of the open container to the player in a single packet,
+     * so the changed slots are not sent one by one on the next tick.
+     */
+    public void sendContainerContent(Player player);
+
     public enum ToastType {
         TASK,
         CHALLENGE,
@@ -4,6 +4,7 @@ import de.tr7zw.changeme.nbtapi.NBT;
 import dev.jorel.commandapi.CommandAPICommand;
 import dev.jorel.commandapi.arguments.*;
 import dev.wuason.mechanics.compatibilities.adapter.Adapter;
+import dev.wuason.mechanics.compatibilities.adapter.AdapterIdValidator;
 import dev.wuason.mechanics.items.ItemBuilder;
 import dev.wuason.mechanics.mechanics.MechanicAddon;
 import dev.wuason.mechanics.utils.AdventureUtils;
@@ -16,8 +17,10 @@ import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 
 public class CommandManager {
     private Mechanics core;
@@ -90,7 +93,10 @@ public class CommandManager {
                         .withArguments(new IntegerArgument("amount").setOptional(true))
                         .executes((sender, args) -> {
                             String id = (String) args.get(0);
-                            if (!Adapter.isValidAdapterId(id)) return;
+                            if (!Adapter.isValidAdapterId(id)) {
+                                AdventureUtils.sendMessage(sender, "<red>Invalid adapter id: " + id);
+                                return;
+                            }
                             ItemStack itemStack = Adapter.getItemStack(id);
                             int amount = (int) args.getOrDefault(1, 1);
                             if (amount > 64 || amount < 1) amount = 64;
@@ -107,7 +113,10 @@ public class CommandManager {
                             Collection<Player> players = (Collection<Player>) args.get(0);
                             if (players.isEmpty()) return;
                             String id = (String) args.get(1);
-                            if (!Adapter.isValidAdapterId(id)) return;
+                            if (!Adapter.isValidAdapterId(id)) {
+                                AdventureUtils.sendMessage(sender, "<red>Invalid adapter id: " + id);
+                                return;
+                            }
                             ItemStack itemStack = Adapter.getItemStack(id);
                             int amount = (int) args.getOrDefault(2, 1);
                             if (amount > 64 || amount < 1) amount = 64;
@@ -118,6 +127,20 @@ public class CommandManager {
                             }
                         })
                 )
+                .withSubcommands(new CommandAPICommand("validate")
+                        .withArguments(new GreedyStringArgument("ids"))
+                        .executes((sender, args) -> {
+                            List<AdapterIdValidator.Reference> references = new ArrayList<>();
+                            for (String id : ((String) args.get(0)).trim().split("\\s+")) {
+                                references.add(new AdapterIdValidator.Reference(id));
+                            }
+                            AdapterIdValidator.Report report = AdapterIdValidator.validate(references);
+                            for (AdapterIdValidator.Invalid invalid : report.getInvalid()) {
+                                AdventureUtils.sendMessage(sender, "<red>" + invalid);
+                            }
+                            AdventureUtils.sendMessage(sender, "<gold>Checked <aqua>" + report.getChecked() + "<gold> ids, <aqua>" + report.getInvalid().size() + "<gold> invalid");
+                        })
+                )
                 .withSubcommands(new CommandAPICommand("getAdapterId")
                         .withArguments(new BooleanArgument("sendToConsole").setOptional(true))
                         .executes((sender, args) -> {
@@ -1,5 +1,8 @@
 package dev.wuason.mechanics;
 
+import dev.wuason.mechanics.compatibilities.adapter.Adapter;
+import dev.wuason.mechanics.compatibilities.adapter.AdapterListener;
+import dev.wuason.mechanics.data.local.LocalDataManager;
 import dev.wuason.mechanics.invmechanic.InvMechanicListeners;
 import dev.wuason.mechanics.items.remover.ItemRemoverManager;
 import dev.wuason.mechanics.mechanics.MechanicManager;
@@ -22,10 +25,13 @@ public class Manager {
         core.getServer().getPluginManager().registerEvents(invMechanicListeners, core);
         core.getServer().getPluginManager().registerEvents(itemRemoverManager, core);
         core.getServer().getPluginManager().registerEvents(mechanicManager, core);
+        core.getServer().getPluginManager().registerEvents(new AdapterListener(), core);
+        Adapter.registerReloadListeners(core);
         commandManager = new CommandManager(core);
     }
 
     public void stop() {
+        LocalDataManager.shutdownAll();
     }
 
     public CommandManager getCommandManager() {
@@ -1,6 +1,7 @@
 package dev.wuason.mechanics.compatibilities.adapter;
 
 import de.tr7zw.changeme.nbtapi.NBT;
+import dev.wuason.mechanics.Mechanics;
 import dev.wuason.mechanics.compatibilities.adapter.plugins.CustomItemsImpl;
 import dev.wuason.mechanics.compatibilities.adapter.plugins.ExecutableBlocksImpl;
 import dev.wuason.mechanics.compatibilities.adapter.plugins.ExecutableItemsImpl;
@@ -10,10 +11,16 @@ import dev.wuason.mechanics.compatibilities.adapter.plugins.MythicImpl;
 import dev.wuason.mechanics.compatibilities.adapter.plugins.MythicCrucibleImpl;
 import dev.wuason.mechanics.compatibilities.adapter.plugins.OraxenImpl;
 import dev.wuason.mechanics.compatibilities.adapter.plugins.StorageMechanicImpl;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.Material;
 import org.bukkit.block.Block;
+import org.bukkit.plugin.Plugin;
 import org.bukkit.inventory.ItemStack;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 public class Adapter {
     private static final ImplementationAdapter[] implementationAdapters = {new VanillaImpl(), new StorageMechanicImpl(), new OraxenImpl(), new MythicImpl(), new MMOItemsImpl(), new ItemsAdderImpl(), new ExecutableItemsImpl(), new ExecutableBlocksImpl(), new CustomItemsImpl(), new MythicCrucibleImpl()};
@@ -24,6 +31,96 @@ public class Adapter {
         }
     }};
 
+    // adapters whose plugin is enabled, replaced as a whole by the AdapterListener
+    private static volatile ImplementationAdapter[] activeAdapters = snapshotAdapters(true);
+    // increased every time the cached items are dropped
+    private static volatile int generation = 0;
+
+    /**
+     * Retrieves the implementation adapters in the order they are asked about an item, the first one that
+     * recognizes it gives its adapter id.
+     */
+    static ImplementationAdapter[] getImplementationAdapters() {
+        return implementationAdapters;
+    }
+
+    /**
+     * Retrieves the adapters whose plugin is enabled, in the same order as {@link #getImplementationAdapters()}.
+     * The array is never modified, a new one replaces it when a plugin is enabled or disabled.
+     */
+    static ImplementationAdapter[] getActiveAdapters() {
+        return activeAdapters;
+    }
+
+    private static ImplementationAdapter[] snapshotAdapters(boolean queryPlugins) {
+        List<ImplementationAdapter> active = new ArrayList<>(implementationAdapters.length);
+        for (ImplementationAdapter impl : implementationAdapters) {
+            if (queryPlugins && !(impl instanceof VanillaImpl)) {
+                impl.updateAvailability(Bukkit.getPluginManager().isPluginEnabled(impl.getPluginName()));
+            }
+            if (impl.isEnabled()) active.add(impl);
+        }
+        return active.toArray(new ImplementationAdapter[0]);
+    }
+
+    /**
+     * Updates the availability of the adapters of a plugin that was enabled or disabled, and drops the
+     * cached items and adapter ids if any adapter changed.
+     *
+     * @param plugin  the plugin
+     * @param enabled whether the plugin was enabled or disabled
+     */
+    static void updateAvailability(Plugin plugin, boolean enabled) {
+        boolean changed = false;
+        for (ImplementationAdapter impl : implementationAdapters) {
+            if (impl instanceof VanillaImpl || !impl.getPluginName().equals(plugin.getName())) continue;
+            changed |= impl.updateAvailability(enabled);
+        }
+        if (!changed) return;
+        activeAdapters = snapshotAdapters(false);
+        if (enabled) registerReloadListeners(Mechanics.getInstance());
+        AdapterItemCache.invalidateAll();
+        AdapterIdResolver.invalidateAll();
+        BlockAdapterCache.invalidateAll();
+        AdapterIdValidator.invalidateAll();
+        generation++;
+    }
+
+    /**
+     * Registers the listeners of the enabled adapters that are called when their plugin reloads its items.
+     *
+     * @param core the plugin that owns the listeners
+     */
+    public static void registerReloadListeners(Plugin core) {
+        for (ImplementationAdapter impl : activeAdapters) {
+            impl.registerReloadListener(core);
+        }
+    }
+
+    /**
+     * Drops everything cached about the items and blocks of an adapter, to be called when its plugin
+     * reloads its items.
+     *
+     * @param impl the adapter
+     */
+    public static void invalidate(ImplementationAdapter impl) {
+        AdapterItemCache.invalidate(impl);
+        AdapterIdResolver.invalidateAll();
+        BlockAdapterCache.invalidateAll();
+        AdapterIdValidator.invalidateAll();
+        generation++;
+    }
+
+    /**
+     * Retrieves a number that changes every time an adapter is enabled, disabled or reloads its items, so
+     * anything built from adapter items can tell when it must be built again.
+     *
+     * @return the current generation
+     */
+    public static int getGeneration() {
+        return generation;
+    }
+
     //****************************************
     //************ GET ITEMS STACK ***********
     //****************************************
@@ -35,11 +132,34 @@ public class Adapter {
      * @return the corresponding ItemStack, or null if it doesn't exist
      */
     public static ItemStack getItemStack(String itemId) {
-        String type = itemId.substring(0, itemId.indexOf(":")).toUpperCase(Locale.ENGLISH);
-        itemId = itemId.substring(itemId.indexOf(":") + 1);
-        ImplementationAdapter impl = types.get(type);
-        if (impl == null) return null;
-        return impl.getAdapterItem(itemId);
+        return AdapterItemCache.getItemStack(AdapterId.parse(itemId));
+    }
+
+    /**
+     * Retrieves an ItemStack based on the given parsed adapter ID.
+     *
+     * @param adapterId the adapter ID
+     * @return the corresponding ItemStack, or null if it doesn't exist
+     */
+    public static ItemStack getItemStack(AdapterId adapterId) {
+        return AdapterItemCache.getItemStack(adapterId);
+    }
+
+    /**
+     * Builds the items of the adapter IDs ahead of their first use, see {@link AdapterItemCache#warmUp(Collection)}.
+     *
+     * @param itemIds the item IDs, each in the format "type:id" (e.g. "mc:dirt")
+     * @return the number of IDs whose item exists
+     */
+    public static int warmUp(Collection<String> itemIds) {
+        return AdapterItemCache.warmUp(itemIds);
+    }
+
+    static ItemStack buildItemStack(AdapterId adapterId) {
+        if (adapterId == null || adapterId.getAdapter() == null) return null;
+        // vanilla NBT ids reuse the NBT parsed by the AdapterId
+        if (adapterId.isNbt()) return NBT.itemStackFromNBT(adapterId.getNbt());
+        return adapterId.getAdapter().getAdapterItem(adapterId.getId());
     }
 
     /**
@@ -49,13 +169,64 @@ public class Adapter {
      * @return a list of corresponding ItemStacks, or an empty list if no items exist
      */
     public static List<ItemStack> getItemsStack(List<String> i) {
-        List<ItemStack> itemStacks = new ArrayList<>();
-        for (String str : i) {
-            itemStacks.add(getItemStack(str));
+        return getItemStacks(i);
+    }
+
+    /**
+     * Retrieves the ItemStacks of many item IDs at once. Every distinct ID is parsed and looked up only once and
+     * repeated IDs receive copies of the same item, except the IDs of adapters whose items are not cacheable,
+     * which are built for every occurrence.
+     *
+     * @param itemIds the item IDs, each in the format "type:id" (e.g. "mc:dirt")
+     * @return the ItemStacks in the order of the IDs, with null for the IDs whose item doesn't exist
+     */
+    public static List<ItemStack> getItemStacks(List<String> itemIds) {
+        Map<String, AdapterId> parsedIds = new HashMap<>();
+        Map<AdapterId, ItemStack> prototypes = new HashMap<>();
+        List<ItemStack> itemStacks = new ArrayList<>(itemIds.size());
+        for (String itemId : itemIds) {
+            AdapterId parsed = parsedIds.computeIfAbsent(itemId, AdapterId::parse);
+            if (parsed == null || parsed.getAdapter() == null) {
+                itemStacks.add(null);
+                continue;
+            }
+            if (!parsed.getAdapter().isItemCacheable()) {
+                itemStacks.add(buildItemStack(parsed));
+                continue;
+            }
+            ItemStack prototype;
+            if (prototypes.containsKey(parsed)) {
+                prototype = prototypes.get(parsed);
+            } else {
+                prototype = AdapterItemCache.getPrototype(parsed);
+                prototypes.put(parsed, prototype);
+            }
+            itemStacks.add(prototype == null ? null : prototype.clone());
         }
         return itemStacks;
     }
 
+    /**
+     * Resolves every distinct adapter ID once.
+     *
+     * @param adapterIds the adapter IDs, in the format "type:id" (e.g. "mc:dirt")
+     * @param resolver   called with every distinct parsed ID whose type has an adapter
+     * @return the results keyed by adapter ID, IDs of unknown types are mapped to null
+     */
+    private static <T> Map<String, T> resolveDistinct(Collection<String> adapterIds, Function<AdapterId, T> resolver) {
+        Map<AdapterId, T> resolved = new HashMap<>();
+        Map<String, T> results = new HashMap<>();
+        for (String adapterId : adapterIds) {
+            if (results.containsKey(adapterId)) continue;
+            AdapterId parsed = AdapterId.parse(adapterId);
+            if (parsed == null) continue;
+            // the same id can be written with a different case in its type
+            if (!resolved.containsKey(parsed)) resolved.put(parsed, parsed.getAdapter() == null ? null : resolver.apply(parsed));
+            results.put(adapterId, resolved.get(parsed));
+        }
+        return results;
+    }
+
     //****************************************
     //****** COMPUTE ADAPTER ID SECTION ******
     //****************************************
@@ -67,11 +238,21 @@ public class Adapter {
      * @return the adapter ID for the given item ID, or the original item ID if no adapter is applicable
      */
     public static String computeAdapterIdByString(String adapterId) {
-        String type = adapterId.substring(0, adapterId.indexOf(":")).toUpperCase(Locale.ENGLISH);
-        String itemId = adapterId.substring(adapterId.indexOf(":") + 1);
-        ImplementationAdapter impl = types.get(type);
-        if(impl == null) throw new IllegalArgumentException("Invalid type: " + type);
-        return "mc:" + impl.computeAdapterId(itemId).trim();
+        AdapterId parsed = AdapterId.parse(adapterId);
+        if (parsed == null) throw new IllegalArgumentException("Invalid adapter id: " + adapterId);
+        return computeAdapterId(parsed);
+    }
+
+    /**
+     * Computes the adapter ID for the given parsed adapter ID.
+     *
+     * @param adapterId the adapter ID
+     * @return the vanilla NBT adapter ID of the item
+     */
+    public static String computeAdapterId(AdapterId adapterId) {
+        ImplementationAdapter impl = adapterId.getAdapter();
+        if(impl == null) throw new IllegalArgumentException("Invalid type: " + adapterId.getType());
+        return "mc:" + impl.computeAdapterId(adapterId.getId()).trim();
     }
 
 
@@ -82,9 +263,12 @@ public class Adapter {
      * @return a list of adapter IDs corresponding to the input item IDs, or an empty list if no adapters are applicable
      */
     public static List<String> computeAdapterIdsByString(List<String> i) {
-        List<String> itemIds = new ArrayList<>();
+        Map<String, String> computed = resolveDistinct(i, Adapter::computeAdapterId);
+        List<String> itemIds = new ArrayList<>(i.size());
         for (String str : i) {
-            itemIds.add(computeAdapterIdByString(str));
+            String adapterId = computed.get(str);
+            if (adapterId == null) throw new IllegalArgumentException("Invalid type: " + str.substring(0, str.indexOf(":")).toUpperCase(Locale.ENGLISH));
+            itemIds.add(adapterId);
         }
         return itemIds;
     }
@@ -129,7 +313,8 @@ public class Adapter {
      */
     public static boolean isSimilar(String item1, String item2) {
         try {
-            return NBT.itemStackFromNBT(NBT.parseNBT(computeAdapterIdByString(item1))).isSimilar(NBT.itemStackFromNBT(NBT.parseNBT(computeAdapterIdByString(item2))));
+            ItemStack prototype = AdapterItemCache.getPrototype(item1);
+            return prototype != null && prototype.isSimilar(AdapterItemCache.getPrototype(item2));
         } catch (Exception e) {
             return false;
         }
@@ -141,18 +326,33 @@ public class Adapter {
 
     /**
      * Compares the given adapter ID and ItemStack to determine if they are similar.
+     * The item of the adapter ID is built once and kept in the {@link AdapterItemCache}.
      *
      * @param adapterId the identifier of the adapter, in the format "type:id" (e.g. "mc:dirt")
      * @param itemStack the ItemStack to compare
      * @return true if the adapter ID and ItemStack are similar, false otherwise
      */
     public static boolean compareItems(String adapterId, ItemStack itemStack) {
-        return NBT.itemStackFromNBT(NBT.parseNBT(computeAdapterIdByString(adapterId))).isSimilar(itemStack);
+        return compareItems(AdapterId.parse(adapterId), itemStack);
+    }
+
+    /**
+     * Compares the given parsed adapter ID and ItemStack to determine if they are similar.
+     *
+     * @param adapterId the adapter ID
+     * @param itemStack the ItemStack to compare
+     * @return true if the adapter ID and ItemStack are similar, false otherwise
+     */
+    public static boolean compareItems(AdapterId adapterId, ItemStack itemStack) {
+        if (itemStack == null) return false;
+        ItemStack prototype = AdapterItemCache.getPrototype(adapterId);
+        return prototype != null && prototype.isSimilar(itemStack);
     }
 
     /**
      * Compares the given list of adapters with the provided ItemStack.
      * Returns true if any of the adapters is similar to the ItemStack.
+     * To test many items against the same list, compile it once with {@link AdapterMatcher#compile(Collection)}.
      *
      * @param adapters the list of adapter IDs to compare with
      * @param itemStack the ItemStack to compare with
@@ -173,7 +373,8 @@ public class Adapter {
      * @return true if the basic adapter IDs of the items match, false otherwise
      */
     public static boolean compareItemsBasic(String adapterId, ItemStack itemStack) {
-        return getAdapterIdBasic(getItemStack(adapterId)).equals(getAdapterIdBasic(itemStack));
+        String basicId = getAdapterIdBasic(AdapterItemCache.getPrototype(adapterId));
+        return basicId != null && basicId.equals(getAdapterIdBasic(itemStack));
     }
 
     /**
@@ -202,33 +403,33 @@ public class Adapter {
      */
     public static String getAdapterIdBasic(ItemStack i) {
         if (i == null) return null;
-        ItemStack itemStack = i.clone();
-        itemStack.setAmount(1);
-        String id = "mc:" + itemStack.getType().toString().toLowerCase(Locale.ENGLISH);
-        for (ImplementationAdapter impl : types.values()) {
-            String itemId = impl.getAdapterId(itemStack);
-            if (itemId != null) {
-                id = itemId;
-                break;
-            }
-        }
-        return id;
+        return AdapterIdResolver.getAdapterIdBasic(i);
     }
 
     /**
      * Retrieves the adapter ID for the given Block using basic logic.
+     * The plugin lookups are cached per chunk, see {@link BlockAdapterCache}.
      *
      * @param block the Block to get the adapter ID for.
      * @return the adapter ID for the given Block, or null if the Block is null.
      */
     public static String getAdapterIdBasic(Block block) {
         if (block == null) return null;
-        String id = "mc:" + block.getType().toString().toLowerCase(Locale.ENGLISH);
-        for (ImplementationAdapter impl : types.values()) {
-            String itemId = impl.getAdapterId(block);
-            if (itemId != null) id = itemId;
-        }
-        return id;
+        String pluginAdapterId = BlockAdapterCache.getPluginAdapterId(block);
+        if (pluginAdapterId != null) return pluginAdapterId;
+        return getVanillaAdapterId(block.getType(), true);
+    }
+
+    /**
+     * Retrieves the vanilla adapter ID of a material.
+     *
+     * @param material the material
+     * @param basic    true for the basic adapter ID ("mc:dirt"), false for the NBT adapter ID
+     * @return the adapter ID
+     */
+    static String getVanillaAdapterId(Material material, boolean basic) {
+        if (basic) return "mc:" + material.toString().toLowerCase(Locale.ENGLISH);
+        return AdapterIdResolver.getAdapterId(new ItemStack(material));
     }
 
     public static String getAdapterIdBasic(String id){
@@ -237,39 +438,64 @@ public class Adapter {
 
     /**
      * Retrieves the adapter ID for the given ItemStack.
+     * The result is memoized per ItemStack instance until its meta changes, see {@link AdapterIdResolver}.
      *
      * @param i the input ItemStack
      * @return the adapter ID for the given ItemStack, or null if it cannot be computed
      */
     public static String getAdapterId(ItemStack i) {
         if (i == null) return null;
-        ItemStack itemStack = i.clone();
-        itemStack.setAmount(1);
-        String id = "mc:" + NBT.itemStackToNBT(itemStack);
-        for (ImplementationAdapter impl : types.values()) {
-            String itemId = impl.getAdapterId(itemStack);
-            if (itemId != null) {
-                id = itemId;
-                break;
-            }
+        return AdapterIdResolver.getAdapterId(i);
+    }
+
+    /**
+     * Retrieves the adapter IDs of many ItemStacks at once, each distinct instance is resolved only once.
+     *
+     * @param itemStacks the ItemStacks
+     * @return the adapter IDs in the order of the ItemStacks, with null for the null ItemStacks
+     */
+    public static List<String> getAdapterIds(List<ItemStack> itemStacks) {
+        Map<ItemStack, String> resolved = new IdentityHashMap<>();
+        List<String> adapterIds = new ArrayList<>(itemStacks.size());
+        for (ItemStack itemStack : itemStacks) {
+            adapterIds.add(itemStack == null ? null : resolved.computeIfAbsent(itemStack, AdapterIdResolver::getAdapterId));
         }
-        return id;
+        return adapterIds;
     }
 
     /**
      * Retrieves the adapter ID for the given Block.
+     * The plugin lookups are cached per chunk, see {@link BlockAdapterCache}.
      *
      * @param block the Block to get the adapter ID for
      * @return the adapter ID for the given Block, or null if the Block is null
      */
     public static String getAdapterId(Block block) {
         if (block == null) return null;
-        String id = "mc:" + NBT.itemStackToNBT(new ItemStack(block.getType()));
-        for (ImplementationAdapter impl : types.values()) {
-            String itemId = impl.getAdapterId(block);
-            if (itemId != null) id = itemId;
-        }
-        return id;
+        String pluginAdapterId = BlockAdapterCache.getPluginAdapterId(block);
+        if (pluginAdapterId != null) return pluginAdapterId;
+        return getVanillaAdapterId(block.getType(), false);
+    }
+
+    /**
+     * Retrieves the adapter IDs of every non-air block of a chunk. The chunk is read from a snapshot off the
+     * main thread and only the blocks that can belong to an enabled plugin are looked up on the main thread.
+     *
+     * @param chunk the chunk, it must stay loaded until the future completes
+     * @return a future completed on the main thread with the adapter IDs of the chunk
+     */
+    public static CompletableFuture<ChunkAdapterIds> getAdapterIds(Chunk chunk) {
+        return BlockAdapterCache.scan(chunk, false);
+    }
+
+    /**
+     * Same as {@link #getAdapterIds(Chunk)} with the basic adapter IDs ("mc:dirt") of the vanilla blocks.
+     *
+     * @param chunk the chunk, it must stay loaded until the future completes
+     * @return a future completed on the main thread with the adapter IDs of the chunk
+     */
+    public static CompletableFuture<ChunkAdapterIds> getAdapterIdsBasic(Chunk chunk) {
+        return BlockAdapterCache.scan(chunk, true);
     }
 
     /**
@@ -279,12 +505,19 @@ public class Adapter {
      * @return true if the item ID is a valid adapter ID, false otherwise
      */
     public static boolean isValidAdapterId(String itemId) {
-        String type = itemId.substring(0, itemId.indexOf(":"));
-        itemId = itemId.substring(itemId.indexOf(":") + 1);
-        for (ImplementationAdapter impl : types.values()) {
-            if (impl.existItemAdapter(itemId)) return true;
-        }
-        return false;
+        AdapterId parsed = AdapterId.parse(itemId);
+        return parsed != null && isValidAdapterId(parsed);
+    }
+
+    /**
+     * Checks if a given parsed adapter ID is a valid adapter ID, asking only the adapter of its type.
+     * Results are cached, use {@link AdapterIdValidator#validate(Collection)} to check many IDs at once.
+     *
+     * @param adapterId the adapter ID to check
+     * @return true if the adapter ID is a valid adapter ID, false otherwise
+     */
+    public static boolean isValidAdapterId(AdapterId adapterId) {
+        return AdapterIdValidator.isValid(adapterId);
     }
 
 
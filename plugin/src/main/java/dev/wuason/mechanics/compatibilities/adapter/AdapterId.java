@@ -0,0 +1,133 @@
+package dev.wuason.mechanics.compatibilities.adapter;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import de.tr7zw.changeme.nbtapi.NBT;
+import de.tr7zw.changeme.nbtapi.iface.ReadableNBT;
+
+import java.util.Locale;
+
+/**
+ * A parsed adapter id ("type:id"). Instances are immutable and interned by {@link #parse(String)}, so hot paths
+ * can keep them instead of splitting and uppercasing the same strings on every call.
+ * <p>
+ * The type is the {@link ImplementationAdapter} registered for the prefix, the prefix set of this repository is
+ * open for new adapters so it is not an enum. Vanilla NBT ids ("mc:{...}") keep their parsed NBT once it is
+ * first needed.
+ */
+public final class AdapterId {
+
+    public static final long MAXIMUM_INTERNED = 8192L;
+
+    private static final Cache<String, AdapterId> INTERNED = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_INTERNED)
+            .build();
+
+    private final String type;
+    private final String id;
+    private final ImplementationAdapter adapter;
+    private final int hash;
+    private volatile ReadableNBT nbt;
+
+    private AdapterId(String type, String id) {
+        this.type = type;
+        this.id = id;
+        this.adapter = Adapter.getTypes().get(type);
+        this.hash = 31 * type.hashCode() + id.hashCode();
+    }
+
+    /**
+     * Parses an adapter id, returning the interned instance when the same string was parsed before.
+     *
+     * @param adapterId the adapter id, in the format "type:id" (e.g. "mc:dirt")
+     * @return the adapter id, or null if the string has no type
+     */
+    public static AdapterId parse(String adapterId) {
+        if (adapterId == null) return null;
+        AdapterId parsed = INTERNED.getIfPresent(adapterId);
+        if (parsed != null) return parsed;
+        int separator = adapterId.indexOf(':');
+        if (separator < 0) return null;
+        parsed = new AdapterId(adapterId.substring(0, separator).toUpperCase(Locale.ENGLISH), adapterId.substring(separator + 1));
+        INTERNED.put(adapterId, parsed);
+        return parsed;
+    }
+
+    /**
+     * Creates the adapter id of a type and an id.
+     *
+     * @param type the type of the adapter (e.g. "mc", "or")
+     * @param id   the id of the item in the adapter
+     * @return the adapter id
+     */
+    public static AdapterId of(String type, String id) {
+        return parse(type + ":" + id);
+    }
+
+    /**
+     * @return the type in upper case, as the keys of {@link Adapter#getTypes()}
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @return the id of the item in its adapter, without the type
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return the adapter of the type, or null if no adapter is registered for it
+     */
+    public ImplementationAdapter getAdapter() {
+        return adapter;
+    }
+
+    public boolean isVanilla() {
+        return adapter instanceof VanillaImpl;
+    }
+
+    /**
+     * @return true if this is a vanilla id with the NBT of the item ("mc:{...}")
+     */
+    public boolean isNbt() {
+        return isVanilla() && id.contains("{") && id.contains("}");
+    }
+
+    /**
+     * Retrieves the NBT of a vanilla NBT id, parsed only the first time.
+     *
+     * @return the read-only NBT, or null if this is not a vanilla NBT id
+     */
+    public ReadableNBT getNbt() {
+        if (!isNbt()) return null;
+        ReadableNBT parsed = nbt;
+        if (parsed == null) {
+            parsed = NBT.parseNBT(id);
+            nbt = parsed;
+        }
+        return parsed;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AdapterId other)) return false;
+        return hash == other.hash && type.equals(other.type) && id.equals(other.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * @return the adapter id in the format "type:id" with the type in lower case
+     */
+    @Override
+    public String toString() {
+        return type.toLowerCase(Locale.ENGLISH) + ":" + id;
+    }
+}
@@ -0,0 +1,105 @@
+package dev.wuason.mechanics.compatibilities.adapter;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import de.tr7zw.changeme.nbtapi.NBT;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves the adapter id of ItemStacks in one pass over the active adapters, in the order of
+ * {@link Adapter#getActiveAdapters()}.
+ * <p>
+ * The NBT of the item is read once and every adapter checks its markers on it, so the plugin APIs are only
+ * called for items that can belong to them. The NBT fallback id is only serialized when no adapter claims the
+ * item. Plugin ids are memoized per ItemStack instance (weak keys, compared by identity) together with the material
+ * and the markers found in its NBT, which are read again on every lookup without copying the meta, so a stack that
+ * is turned into another item is resolved again.
+ */
+final class AdapterIdResolver {
+
+    private static final long MAXIMUM_SIZE = 8192L;
+
+    private static final Cache<ItemStack, Resolved> RESOLVED = CacheBuilder.newBuilder()
+            .weakKeys()
+            .maximumSize(MAXIMUM_SIZE)
+            .build();
+    // items without meta only depend on their material
+    private static final Map<Material, String> PLAIN_NBT_IDS = new ConcurrentHashMap<>();
+
+    private AdapterIdResolver() {
+    }
+
+    private record Resolved(Material type, boolean[] markers, String pluginAdapterId) {
+    }
+
+    /**
+     * @return the adapter id of a plugin item, or the vanilla NBT adapter id ("mc:{...}") otherwise
+     */
+    static String getAdapterId(ItemStack itemStack) {
+        if (!itemStack.hasItemMeta()) {
+            return PLAIN_NBT_IDS.computeIfAbsent(itemStack.getType(), material -> "mc:" + NBT.itemStackToNBT(new ItemStack(material)));
+        }
+        String pluginAdapterId = resolve(itemStack).pluginAdapterId();
+        if (pluginAdapterId != null) return pluginAdapterId;
+        // the NBT id depends on the whole item, it cannot be validated without serializing it again
+        ItemStack single = itemStack.clone();
+        single.setAmount(1);
+        return "mc:" + NBT.itemStackToNBT(single);
+    }
+
+    /**
+     * @return the adapter id of a plugin item, or the vanilla material adapter id ("mc:dirt") otherwise
+     */
+    static String getAdapterIdBasic(ItemStack itemStack) {
+        String pluginAdapterId = getPluginAdapterId(itemStack);
+        if (pluginAdapterId != null) return pluginAdapterId;
+        return "mc:" + itemStack.getType().toString().toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * @return the adapter id given by the first adapter that claims the item, or null if it is not a plugin item
+     */
+    static String getPluginAdapterId(ItemStack itemStack) {
+        // every custom item stores its markers in the meta
+        if (!itemStack.hasItemMeta()) return null;
+        return resolve(itemStack).pluginAdapterId();
+    }
+
+    /**
+     * Forgets every memoized result, to be called when the items of a plugin are reloaded.
+     */
+    static void invalidateAll() {
+        RESOLVED.invalidateAll();
+    }
+
+    private static Resolved resolve(ItemStack itemStack) {
+        ImplementationAdapter[] adapters = Adapter.getActiveAdapters();
+        boolean[] markers = NBT.get(itemStack, nbt -> {
+            boolean[] marked = new boolean[adapters.length];
+            for (int i = 0; i < adapters.length; i++) {
+                marked[i] = adapters[i].hasItemMarker(nbt);
+            }
+            return marked;
+        });
+        Resolved resolved = RESOLVED.getIfPresent(itemStack);
+        if (resolved != null && resolved.type() == itemStack.getType() && Arrays.equals(resolved.markers(), markers)) return resolved;
+        resolved = new Resolved(itemStack.getType(), markers, findPluginAdapterId(itemStack, adapters, markers));
+        RESOLVED.put(itemStack, resolved);
+        return resolved;
+    }
+
+    private static String findPluginAdapterId(ItemStack itemStack, ImplementationAdapter[] adapters, boolean[] candidates) {
+        for (int i = 0; i < adapters.length; i++) {
+            if (!candidates[i]) continue;
+            String adapterId = adapters[i].getAdapterId(itemStack);
+            if (adapterId != null) return adapterId;
+        }
+        return null;
+    }
+}
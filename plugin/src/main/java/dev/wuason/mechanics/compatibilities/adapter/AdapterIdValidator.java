@@ -0,0 +1,199 @@
+package dev.wuason.mechanics.compatibilities.adapter;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Validates many adapter ids at once, for example every id of a config on reload.
+ * <p>
+ * The ids are deduplicated and grouped by type. Adapters whose lookups are thread safe
+ * ({@link ImplementationAdapter#isThreadSafe()}) are validated in parallel, the others on the calling thread.
+ * Results are cached until an adapter is enabled, disabled or reloaded. Ids that do not exist are only cached for
+ * adapters that are notified when their plugin reloads, the others can add the item without the cache knowing.
+ *
+ * <pre>{@code
+ * AdapterIdValidator.Report report = AdapterIdValidator.validate(AdapterIdValidator.scan(file, Set.of("item")));
+ * for (AdapterIdValidator.Invalid invalid : report.getInvalid()) {
+ *     AdventureUtils.sendMessagePluginConsole(core, "<red>" + invalid);
+ * }
+ * }</pre>
+ */
+public final class AdapterIdValidator {
+
+    public static final long MAXIMUM_CACHED = 8192L;
+
+    private static final Cache<AdapterId, Boolean> RESULTS = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_CACHED)
+            .build();
+
+    private AdapterIdValidator() {
+    }
+
+    /**
+     * Where an adapter id was written.
+     *
+     * @param adapterId the adapter id
+     * @param file      the file, or null if it doesn't come from a file
+     * @param line      the line in the file starting at 1, or 0 if unknown
+     */
+    public record Reference(String adapterId, String file, int line) {
+        public Reference(String adapterId) {
+            this(adapterId, null, 0);
+        }
+    }
+
+    /**
+     * An invalid adapter id and the reason it is invalid.
+     */
+    public record Invalid(Reference reference, String reason) {
+        @Override
+        public String toString() {
+            String location = reference.file() == null ? "" : " (" + reference.file() + (reference.line() > 0 ? ":" + reference.line() : "") + ")";
+            return "Invalid adapter id '" + reference.adapterId() + "'" + location + ": " + reason;
+        }
+    }
+
+    public static final class Report {
+        private final int checked;
+        private final List<Invalid> invalid;
+
+        private Report(int checked, List<Invalid> invalid) {
+            this.checked = checked;
+            this.invalid = Collections.unmodifiableList(invalid);
+        }
+
+        public boolean isValid() {
+            return invalid.isEmpty();
+        }
+
+        /**
+         * @return the number of references checked
+         */
+        public int getChecked() {
+            return checked;
+        }
+
+        /**
+         * @return the invalid references in the order they were given
+         */
+        public List<Invalid> getInvalid() {
+            return invalid;
+        }
+    }
+
+    /**
+     * Checks if an adapter id is valid, using the cached result when there is one.
+     *
+     * @param adapterId the adapter id
+     * @return true if the type has an adapter and the item exists
+     */
+    public static boolean isValid(AdapterId adapterId) {
+        if (adapterId == null || adapterId.getAdapter() == null) return false;
+        Boolean cached = RESULTS.getIfPresent(adapterId);
+        if (cached != null) return cached;
+        boolean valid;
+        try {
+            valid = adapterId.getAdapter().existItemAdapter(adapterId.getId());
+        } catch (RuntimeException e) {
+            valid = false;
+        }
+        if (valid || adapterId.getAdapter().hasReloadListener()) RESULTS.put(adapterId, valid);
+        return valid;
+    }
+
+    public static boolean isValid(String adapterId) {
+        return isValid(AdapterId.parse(adapterId));
+    }
+
+    /**
+     * Validates the adapter ids of the references.
+     *
+     * @param references the references
+     * @return the report with the invalid references
+     */
+    public static Report validate(Collection<Reference> references) {
+        Map<ImplementationAdapter, Set<AdapterId>> idsByAdapter = new LinkedHashMap<>();
+        for (Reference reference : references) {
+            AdapterId parsed = AdapterId.parse(reference.adapterId());
+            if (parsed == null || parsed.getAdapter() == null) continue;
+            idsByAdapter.computeIfAbsent(parsed.getAdapter(), adapter -> new LinkedHashSet<>()).add(parsed);
+        }
+        Map<AdapterId, Boolean> results = new ConcurrentHashMap<>();
+        idsByAdapter.forEach((adapter, ids) -> {
+            if (adapter.isThreadSafe()) {
+                ids.parallelStream().forEach(adapterId -> results.put(adapterId, isValid(adapterId)));
+            } else {
+                for (AdapterId adapterId : ids) {
+                    results.put(adapterId, isValid(adapterId));
+                }
+            }
+        });
+        List<Invalid> invalid = new ArrayList<>();
+        for (Reference reference : references) {
+            AdapterId parsed = AdapterId.parse(reference.adapterId());
+            if (parsed == null) {
+                invalid.add(new Invalid(reference, "expected the format type:id"));
+            } else if (parsed.getAdapter() == null) {
+                invalid.add(new Invalid(reference, "unknown type '" + parsed.getType().toLowerCase(Locale.ENGLISH) + "'"));
+            } else if (!parsed.getAdapter().isEnabled()) {
+                invalid.add(new Invalid(reference, parsed.getAdapter().getPluginName() + " is not enabled"));
+            } else if (!results.getOrDefault(parsed, false)) {
+                invalid.add(new Invalid(reference, "the item does not exist"));
+            }
+        }
+        return new Report(references.size(), invalid);
+    }
+
+    /**
+     * Reads the adapter ids written as the value of the given keys in a YAML file, with their line.
+     * Only single line values are found, e.g. {@code item: "or:ruby"}.
+     *
+     * @param file the YAML file
+     * @param keys the keys whose values are adapter ids
+     * @return the references found, or an empty list if the file cannot be read
+     */
+    public static List<Reference> scan(File file, Set<String> keys) {
+        List<Reference> references = new ArrayList<>();
+        if (keys.isEmpty()) return references;
+        StringJoiner alternatives = new StringJoiner("|");
+        for (String key : keys) alternatives.add(Pattern.quote(key));
+        Pattern pattern = Pattern.compile("^\\s*(?:-\\s*)?(?:" + alternatives + ")\\s*:\\s*(.+?)\\s*$");
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return references;
+        }
+        for (int i = 0; i < lines.size(); i++) {
+            Matcher matcher = pattern.matcher(lines.get(i));
+            if (!matcher.matches()) continue;
+            String value = unquote(matcher.group(1));
+            if (!value.isEmpty()) references.add(new Reference(value, file.getPath(), i + 1));
+        }
+        return references;
+    }
+
+    private static String unquote(String value) {
+        if (value.length() >= 2 && value.startsWith("'") && value.endsWith("'")) {
+            return value.substring(1, value.length() - 1).replace("''", "'");
+        }
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            return value.substring(1, value.length() - 1);
+        }
+        int comment = value.indexOf(" #");
+        return comment < 0 ? value : value.substring(0, comment).trim();
+    }
+
+    public static void invalidateAll() {
+        RESULTS.invalidateAll();
+    }
+}
@@ -0,0 +1,124 @@
+package dev.wuason.mechanics.compatibilities.adapter;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded cache of the ItemStacks built from adapter ids. The cached stacks are prototypes shared by every
+ * caller and must never be modified or handed out to code that could modify them,
+ * {@link #getItemStack(AdapterId)} hands out copies.
+ * <p>
+ * The prototypes of an adapter are dropped when its plugin reloads its items, and the ids preloaded with
+ * {@link #warmUp(Collection)} are built again right away.
+ */
+public final class AdapterItemCache {
+
+    public static final long MAXIMUM_SIZE = 4096L;
+    public static final long EXPIRE_AFTER_ACCESS_MINUTES = 30L;
+
+    private static final Cache<AdapterId, ItemStack> PROTOTYPES = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .expireAfterAccess(EXPIRE_AFTER_ACCESS_MINUTES, TimeUnit.MINUTES)
+            .recordStats()
+            .build();
+    private static final Set<AdapterId> WARM_IDS = ConcurrentHashMap.newKeySet();
+
+    private AdapterItemCache() {
+    }
+
+    /**
+     * Retrieves the prototype of the adapter id, building it the first time. Ids that cannot be built are
+     * not cached, so items of plugins that load later are found once they exist.
+     *
+     * @param adapterId the adapter id, in the format "type:id" (e.g. "mc:dirt")
+     * @return the shared prototype, or null if the item does not exist
+     */
+    static ItemStack getPrototype(String adapterId) {
+        return getPrototype(AdapterId.parse(adapterId));
+    }
+
+    /**
+     * Same as {@link #getPrototype(String)} with a parsed adapter id.
+     */
+    static ItemStack getPrototype(AdapterId adapterId) {
+        if (adapterId == null) return null;
+        ItemStack prototype = PROTOTYPES.getIfPresent(adapterId);
+        if (prototype != null) return prototype;
+        prototype = Adapter.buildItemStack(adapterId);
+        if (prototype != null) PROTOTYPES.put(adapterId, prototype);
+        return prototype;
+    }
+
+    /**
+     * Retrieves a new ItemStack of the adapter id. Items of adapters whose items are always built the same
+     * way are copied from the prototype, the others are built every time.
+     *
+     * @param adapterId the adapter id
+     * @return the ItemStack, or null if the item does not exist
+     */
+    static ItemStack getItemStack(AdapterId adapterId) {
+        if (adapterId == null || adapterId.getAdapter() == null) return null;
+        if (!adapterId.getAdapter().isItemCacheable()) return Adapter.buildItemStack(adapterId);
+        ItemStack prototype = getPrototype(adapterId);
+        return prototype == null ? null : prototype.clone();
+    }
+
+    /**
+     * Builds the prototypes of the adapter ids ahead of their first use, for example with the ids found in
+     * the configs at startup. The ids are remembered and built again when their plugin reloads its items.
+     *
+     * @param adapterIds the adapter ids, in the format "type:id" (e.g. "mc:dirt")
+     * @return the number of ids whose item exists
+     */
+    public static int warmUp(Collection<String> adapterIds) {
+        int built = 0;
+        for (String adapterId : adapterIds) {
+            AdapterId parsed = AdapterId.parse(adapterId);
+            if (parsed == null || parsed.getAdapter() == null) continue;
+            WARM_IDS.add(parsed);
+            try {
+                if (getPrototype(parsed) != null) built++;
+            } catch (RuntimeException e) {
+                // a malformed id fails when it is used, not while warming up
+            }
+        }
+        return built;
+    }
+
+    /**
+     * Drops the prototypes of an adapter and builds again the ones that were warmed up.
+     *
+     * @param adapter the adapter whose plugin reloaded its items
+     */
+    static void invalidate(ImplementationAdapter adapter) {
+        PROTOTYPES.asMap().keySet().removeIf(adapterId -> adapterId.getAdapter() == adapter);
+        for (AdapterId adapterId : WARM_IDS) {
+            if (adapterId.getAdapter() != adapter) continue;
+            try {
+                getPrototype(adapterId);
+            } catch (RuntimeException e) {
+                // a malformed id fails when it is used, not while warming up
+            }
+        }
+    }
+
+    public static void invalidate(String adapterId) {
+        AdapterId parsed = AdapterId.parse(adapterId);
+        if (parsed != null) PROTOTYPES.invalidate(parsed);
+    }
+
+    public static void invalidateAll() {
+        PROTOTYPES.invalidateAll();
+    }
+
+    public static CacheStats getStats() {
+        return PROTOTYPES.stats();
+    }
+}
@@ -0,0 +1,114 @@
+package dev.wuason.mechanics.compatibilities.adapter;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * A list of adapter ids compiled once to test many ItemStacks against it.
+ * <p>
+ * {@link #compile(Collection)} keeps the same semantics as {@link Adapter#compareItems(List, ItemStack)}, the
+ * items of the ids are grouped by material so each test only checks {@link ItemStack#isSimilar(ItemStack)}
+ * against the prototypes of the item's material instead of every id.
+ * {@link #compileBasic(Collection)} keeps the semantics of {@link Adapter#compareItemsBasic(List, ItemStack)},
+ * each test is a hash lookup of the item's basic adapter id.
+ * <p>
+ * The matcher is compiled again on the next test after the {@link Adapter#getGeneration() adapter generation}
+ * changes, so the prototypes of a reloaded item plugin replace the old ones.
+ *
+ * <pre>{@code
+ * AdapterMatcher fuels = AdapterMatcher.compile(List.of("mc:coal", "or:ruby_coal"));
+ * if (fuels.test(itemStack)) { ... }
+ * }</pre>
+ */
+public final class AdapterMatcher implements Predicate<ItemStack> {
+
+    private final List<String> adapterIds;
+    private final boolean basic;
+    private volatile Compiled compiled;
+
+    private AdapterMatcher(Collection<String> adapterIds, boolean basic) {
+        this.adapterIds = List.copyOf(new LinkedHashSet<>(adapterIds));
+        this.basic = basic;
+        this.compiled = compile();
+    }
+
+    private record Compiled(int generation, Map<Material, ItemStack[]> prototypes, Set<String> basicIds) {
+    }
+
+    /**
+     * Compiles a matcher that accepts the items similar to any of the adapter ids.
+     * Ids whose item does not exist are ignored.
+     *
+     * @param adapterIds the adapter ids, in the format "type:id" (e.g. "mc:dirt")
+     * @return the matcher
+     */
+    public static AdapterMatcher compile(Collection<String> adapterIds) {
+        return new AdapterMatcher(adapterIds, false);
+    }
+
+    /**
+     * Compiles a matcher that accepts the items with the same basic adapter id as any of the adapter ids.
+     * Ids whose item does not exist are ignored.
+     *
+     * @param adapterIds the adapter ids, in the format "type:id" (e.g. "mc:dirt")
+     * @return the matcher
+     */
+    public static AdapterMatcher compileBasic(Collection<String> adapterIds) {
+        return new AdapterMatcher(adapterIds, true);
+    }
+
+    private Compiled compile() {
+        int generation = Adapter.getGeneration();
+        if (basic) {
+            Set<String> basicIds = new HashSet<>();
+            for (String adapterId : adapterIds) {
+                ItemStack prototype = AdapterItemCache.getPrototype(adapterId);
+                if (prototype == null) continue;
+                basicIds.add(Adapter.getAdapterIdBasic(prototype));
+            }
+            return new Compiled(generation, null, basicIds);
+        }
+        Map<Material, List<ItemStack>> grouped = new EnumMap<>(Material.class);
+        for (String adapterId : adapterIds) {
+            ItemStack prototype = AdapterItemCache.getPrototype(adapterId);
+            if (prototype == null) continue;
+            grouped.computeIfAbsent(prototype.getType(), material -> new ArrayList<>()).add(prototype);
+        }
+        Map<Material, ItemStack[]> prototypes = new EnumMap<>(Material.class);
+        grouped.forEach((material, items) -> prototypes.put(material, items.toArray(new ItemStack[0])));
+        return new Compiled(generation, prototypes, null);
+    }
+
+    /**
+     * Retrieves the compiled ids, compiling them again if the adapters changed since the last compilation.
+     */
+    private Compiled getCompiled() {
+        Compiled compiled = this.compiled;
+        if (compiled.generation() != Adapter.getGeneration()) {
+            compiled = compile();
+            this.compiled = compiled;
+        }
+        return compiled;
+    }
+
+    @Override
+    public boolean test(ItemStack itemStack) {
+        if (itemStack == null) return false;
+        Compiled compiled = getCompiled();
+        if (basic) return compiled.basicIds().contains(Adapter.getAdapterIdBasic(itemStack));
+        ItemStack[] candidates = compiled.prototypes().get(itemStack.getType());
+        if (candidates == null) return false;
+        for (ItemStack candidate : candidates) {
+            if (candidate.isSimilar(itemStack)) return true;
+        }
+        return false;
+    }
+
+    public boolean isEmpty() {
+        Compiled compiled = getCompiled();
+        return basic ? compiled.basicIds().isEmpty() : compiled.prototypes().isEmpty();
+    }
+}
@@ -0,0 +1,213 @@
+package dev.wuason.mechanics.compatibilities.adapter;
+
+import dev.wuason.mechanics.Mechanics;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the plugin adapter id of blocks per chunk, with the block position packed into a long.
+ * <p>
+ * The entries are dropped by the {@link AdapterListener} when a block is placed, broken or changed and when its
+ * chunk unloads. Each entry also keeps the block data of the block, an entry whose block no longer has that
+ * block data is resolved again. The whole block data is compared and not only the material, because custom blocks
+ * share materials and differ in their states, like the instrument and note of note blocks, and they can be
+ * changed without any event, for example by WorldEdit or another plugin.
+ */
+public final class BlockAdapterCache {
+
+    private static final Map<UUID, Map<Long, ChunkIds>> WORLDS = new ConcurrentHashMap<>();
+
+    private BlockAdapterCache() {
+    }
+
+    private record Entry(BlockData blockData, String pluginAdapterId) {
+    }
+
+    private static final class ChunkIds {
+        private final LongObjectHashMap<Entry> entries = new LongObjectHashMap<>();
+
+        synchronized Entry get(long position) {
+            return entries.get(position);
+        }
+
+        synchronized void put(long position, Entry entry) {
+            entries.put(position, entry);
+        }
+
+        synchronized void remove(long position) {
+            entries.remove(position);
+        }
+    }
+
+    //****************************************
+    //*********** PACKED POSITIONS ***********
+    //****************************************
+
+    /**
+     * Packs a block position into a long, 26 bits for x and z and 12 bits for y.
+     */
+    public static long pack(int x, int y, int z) {
+        return ((long) x & 0x3FFFFFFL) << 38 | ((long) z & 0x3FFFFFFL) << 12 | ((long) y & 0xFFFL);
+    }
+
+    public static int unpackX(long position) {
+        return (int) (position >> 38);
+    }
+
+    public static int unpackY(long position) {
+        return (int) (position << 52 >> 52);
+    }
+
+    public static int unpackZ(long position) {
+        return (int) (position << 26 >> 38);
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX & 0xFFFFFFFFL) | ((long) chunkZ & 0xFFFFFFFFL) << 32;
+    }
+
+    private static ChunkIds chunk(World world, int chunkX, int chunkZ) {
+        return WORLDS.computeIfAbsent(world.getUID(), uuid -> new ConcurrentHashMap<>()).computeIfAbsent(chunkKey(chunkX, chunkZ), key -> new ChunkIds());
+    }
+
+    //****************************************
+    //************** LOOKUPS *****************
+    //****************************************
+
+    /**
+     * Retrieves the adapter id given to the block by the first active adapter that claims it.
+     *
+     * @param block the block
+     * @return the adapter id, or null if the block is not a plugin block
+     */
+    static String getPluginAdapterId(Block block) {
+        BlockData blockData = block.getBlockData();
+        ChunkIds chunkIds = chunk(block.getWorld(), block.getX() >> 4, block.getZ() >> 4);
+        long position = pack(block.getX(), block.getY(), block.getZ());
+        Entry entry = chunkIds.get(position);
+        if (entry != null && entry.blockData().equals(blockData)) return entry.pluginAdapterId();
+        String pluginAdapterId = findPluginAdapterId(block, blockData.getMaterial());
+        chunkIds.put(position, new Entry(blockData, pluginAdapterId));
+        return pluginAdapterId;
+    }
+
+    private static String findPluginAdapterId(Block block, Material material) {
+        for (ImplementationAdapter impl : Adapter.getActiveAdapters()) {
+            if (!impl.canBeAdapterBlock(material)) continue;
+            String adapterId = impl.getAdapterId(block);
+            if (adapterId != null) return adapterId;
+        }
+        return null;
+    }
+
+    private static boolean canBePluginBlock(ImplementationAdapter[] adapters, Material material) {
+        for (ImplementationAdapter impl : adapters) {
+            if (impl.canBeAdapterBlock(material)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Scans every non-air block of a chunk. The block data is read from a chunk snapshot off the main thread,
+     * only the blocks whose material can belong to an active adapter are looked up on the main thread.
+     *
+     * @param chunk the chunk
+     * @param basic true for basic adapter ids ("mc:dirt"), false for full vanilla NBT ids
+     * @return the adapter ids of the chunk, completed on the main thread
+     */
+    static CompletableFuture<ChunkAdapterIds> scan(Chunk chunk, boolean basic) {
+        CompletableFuture<ChunkAdapterIds> future = new CompletableFuture<>();
+        Mechanics core = Mechanics.getInstance();
+        Runnable takeSnapshot = () -> {
+            World world = chunk.getWorld();
+            UUID worldId = world.getUID();
+            ChunkSnapshot snapshot = chunk.getChunkSnapshot(false, false, false);
+            int minY = world.getMinHeight();
+            int maxY = world.getMaxHeight();
+            Bukkit.getScheduler().runTaskAsynchronously(core, () -> {
+                try {
+                    ChunkAdapterIds result = scanSnapshot(worldId, snapshot, minY, maxY, basic);
+                    if (result.getPendingCount() == 0) {
+                        future.complete(result);
+                        return;
+                    }
+                    Bukkit.getScheduler().runTask(core, () -> {
+                        try {
+                            result.resolvePending(world, basic);
+                            future.complete(result);
+                        } catch (Throwable e) {
+                            future.completeExceptionally(e);
+                        }
+                    });
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        };
+        if (Bukkit.isPrimaryThread()) takeSnapshot.run();
+        else Bukkit.getScheduler().runTask(core, takeSnapshot);
+        return future;
+    }
+
+    private static ChunkAdapterIds scanSnapshot(UUID worldId, ChunkSnapshot snapshot, int minY, int maxY, boolean basic) {
+        ImplementationAdapter[] adapters = Adapter.getActiveAdapters();
+        int baseX = snapshot.getX() << 4;
+        int baseZ = snapshot.getZ() << 4;
+        Map<Long, ChunkIds> worldChunks = WORLDS.get(worldId);
+        ChunkIds chunkIds = worldChunks == null ? null : worldChunks.get(chunkKey(snapshot.getX(), snapshot.getZ()));
+        ChunkAdapterIds result = new ChunkAdapterIds();
+        for (int y = minY; y < maxY; y++) {
+            for (int x = 0; x < 16; x++) {
+                for (int z = 0; z < 16; z++) {
+                    BlockData blockData = snapshot.getBlockData(x, y, z);
+                    Material material = blockData.getMaterial();
+                    if (material.isAir()) continue;
+                    long position = pack(baseX + x, y, baseZ + z);
+                    Entry entry = chunkIds == null ? null : chunkIds.get(position);
+                    if (entry != null && entry.blockData().equals(blockData)) {
+                        result.add(position, entry.pluginAdapterId() != null ? entry.pluginAdapterId() : Adapter.getVanillaAdapterId(material, basic));
+                    } else if (canBePluginBlock(adapters, material)) {
+                        result.addPending(position, material);
+                    } else {
+                        result.add(position, Adapter.getVanillaAdapterId(material, basic));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    //****************************************
+    //************ INVALIDATION **************
+    //****************************************
+
+    public static void invalidate(Block block) {
+        Map<Long, ChunkIds> worldChunks = WORLDS.get(block.getWorld().getUID());
+        if (worldChunks == null) return;
+        ChunkIds chunkIds = worldChunks.get(chunkKey(block.getX() >> 4, block.getZ() >> 4));
+        if (chunkIds != null) chunkIds.remove(pack(block.getX(), block.getY(), block.getZ()));
+    }
+
+    public static void invalidate(Chunk chunk) {
+        Map<Long, ChunkIds> worldChunks = WORLDS.get(chunk.getWorld().getUID());
+        if (worldChunks != null) worldChunks.remove(chunkKey(chunk.getX(), chunk.getZ()));
+    }
+
+    public static void invalidate(World world) {
+        WORLDS.remove(world.getUID());
+    }
+
+    public static void invalidateAll() {
+        WORLDS.clear();
+    }
+}
@@ -0,0 +1,71 @@
+package dev.wuason.mechanics.compatibilities.adapter;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+
+import java.util.Arrays;
+
+/**
+ * The adapter ids of the non-air blocks of a chunk, as parallel arrays of packed positions and ids.
+ * Use {@link BlockAdapterCache#unpackX(long)} and its siblings to read the positions.
+ */
+public final class ChunkAdapterIds {
+
+    private long[] positions = new long[256];
+    private String[] adapterIds = new String[256];
+    private int size;
+    // blocks that must be looked up on the main thread, their index in the arrays and material
+    private int[] pendingIndexes = new int[16];
+    private Material[] pendingMaterials = new Material[16];
+    private int pendingCount;
+
+    ChunkAdapterIds() {
+    }
+
+    void add(long position, String adapterId) {
+        if (size == positions.length) {
+            positions = Arrays.copyOf(positions, size << 1);
+            adapterIds = Arrays.copyOf(adapterIds, size << 1);
+        }
+        positions[size] = position;
+        adapterIds[size++] = adapterId;
+    }
+
+    void addPending(long position, Material material) {
+        if (pendingCount == pendingIndexes.length) {
+            pendingIndexes = Arrays.copyOf(pendingIndexes, pendingCount << 1);
+            pendingMaterials = Arrays.copyOf(pendingMaterials, pendingCount << 1);
+        }
+        pendingIndexes[pendingCount] = size;
+        pendingMaterials[pendingCount++] = material;
+        add(position, null);
+    }
+
+    int getPendingCount() {
+        return pendingCount;
+    }
+
+    void resolvePending(World world, boolean basic) {
+        for (int i = 0; i < pendingCount; i++) {
+            int index = pendingIndexes[i];
+            long position = positions[index];
+            String pluginAdapterId = BlockAdapterCache.getPluginAdapterId(world.getBlockAt(BlockAdapterCache.unpackX(position), BlockAdapterCache.unpackY(position), BlockAdapterCache.unpackZ(position)));
+            adapterIds[index] = pluginAdapterId != null ? pluginAdapterId : Adapter.getVanillaAdapterId(pendingMaterials[i], basic);
+        }
+        pendingCount = 0;
+        pendingIndexes = null;
+        pendingMaterials = null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getPosition(int index) {
+        return positions[index];
+    }
+
+    public String getAdapterId(int index) {
+        return adapterIds[index];
+    }
+}
@@ -1,7 +1,10 @@
 package dev.wuason.mechanics.compatibilities.adapter;
 
+import de.tr7zw.changeme.nbtapi.iface.ReadableNBT;
 import org.bukkit.Bukkit;
+import org.bukkit.Material;
 import org.bukkit.block.Block;
+import org.bukkit.event.Listener;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.plugin.Plugin;
 
@@ -10,8 +13,10 @@ import java.util.Locale;
 public abstract class ImplementationAdapter {
 
     private String type;
-    private boolean enabled = false;
+    private volatile boolean enabled = false;
+    private volatile Plugin plugin;
     private String pluginName;
+    private boolean reloadListenerRegistered = false;
 
     public ImplementationAdapter(String type, String pluginName){
         this.type = type.toUpperCase(Locale.ENGLISH);
@@ -26,6 +31,69 @@ public abstract class ImplementationAdapter {
     public abstract boolean existItemAdapter(String id);
     public abstract String computeAdapterId(String itemId);
 
+    /**
+     * Tells if the items of this adapter are always built the same way, so they can be copied from a cached
+     * prototype instead of being built on every request.
+     */
+    public boolean isItemCacheable() {
+        return false;
+    }
+
+    /**
+     * Tells if {@link #existItemAdapter(String)} can be called from several threads at once, so bulk
+     * validations of this adapter run in parallel.
+     */
+    public boolean isThreadSafe() {
+        return false;
+    }
+
+    /**
+     * Creates the listener that calls {@link Adapter#invalidate(ImplementationAdapter)} when the plugin of this
+     * adapter reloads its items. It is only created once the plugin is enabled, so it can use its classes.
+     *
+     * @return the listener, or null if the plugin has no reload event
+     */
+    public Listener createReloadListener() {
+        return null;
+    }
+
+    void registerReloadListener(Plugin core) {
+        if (reloadListenerRegistered) return;
+        Listener listener = createReloadListener();
+        if (listener == null) return;
+        reloadListenerRegistered = true;
+        Bukkit.getPluginManager().registerEvents(listener, core);
+    }
+
+    /**
+     * Tells if this adapter is notified when its plugin reloads its items, so what is cached about them is dropped.
+     */
+    boolean hasReloadListener() {
+        return reloadListenerRegistered;
+    }
+
+    /**
+     * Checks the markers this plugin leaves in the NBT of its items, so the plugin API is only asked about
+     * items that can belong to it. Adapters without known markers always return true.
+     *
+     * @param nbt the read-only NBT of the item
+     * @return false if the item can't be an item of this adapter
+     */
+    public boolean hasItemMarker(ReadableNBT nbt) {
+        return true;
+    }
+
+    /**
+     * Checks if a block of the material can be a block of this adapter, so bulk block scans only look up the
+     * blocks that can belong to it. Adapters that can place any material always return true.
+     *
+     * @param material the material of the block
+     * @return false if a block of the material can't be a block of this adapter
+     */
+    public boolean canBeAdapterBlock(Material material) {
+        return true;
+    }
+
 
     public void setEnabled(boolean enabled) {
         this.enabled = enabled;
@@ -35,15 +103,32 @@ public abstract class ImplementationAdapter {
         return type;
     }
 
+    /**
+     * Checks if the plugin of this adapter is enabled. The state is a snapshot kept up to date by
+     * {@link AdapterListener}, so this never queries the plugin manager.
+     */
     public boolean isEnabled() {
-        if(enabled == false) enabled = Bukkit.getPluginManager().isPluginEnabled(pluginName);
         return enabled;
     }
 
+    /**
+     * Takes a new snapshot of the plugin of this adapter.
+     *
+     * @param enabled whether the plugin is enabled, given by the caller because the plugin manager
+     *                still reports a plugin as enabled while its disable event is being called
+     * @return true if the enabled state changed
+     */
+    boolean updateAvailability(boolean enabled) {
+        this.plugin = Bukkit.getPluginManager().getPlugin(pluginName);
+        boolean changed = this.enabled != enabled;
+        this.enabled = enabled;
+        return changed;
+    }
+
     public String getPluginName() {
         return pluginName;
     }
     public Plugin getPlugin(){
-        return Bukkit.getPluginManager().getPlugin(pluginName);
+        return plugin;
     }
 }
@@ -2,6 +2,7 @@ package dev.wuason.mechanics.compatibilities.adapter;
 
 
 import de.tr7zw.changeme.nbtapi.NBT;
+import de.tr7zw.changeme.nbtapi.iface.ReadableNBT;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
 import org.bukkit.inventory.ItemStack;
@@ -13,6 +14,21 @@ public class VanillaImpl extends ImplementationAdapter {
         super("mc","Minecraft");
     }
 
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public boolean isItemCacheable() {
+        return true;
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public ItemStack getAdapterItem(String id) {
         if(id.contains("{") && id.contains("}")) return NBT.itemStackFromNBT(NBT.parseNBT(id));
@@ -25,6 +41,16 @@ public class VanillaImpl extends ImplementationAdapter {
         return null;
     }
 
+    @Override
+    public boolean hasItemMarker(ReadableNBT nbt) {
+        return false;
+    }
+
+    @Override
+    public boolean canBeAdapterBlock(Material material) {
+        return false;
+    }
+
     @Override
     public String getAdapterId(Block block) {
         return null;
@@ -32,7 +58,14 @@ public class VanillaImpl extends ImplementationAdapter {
 
     @Override
     public boolean existItemAdapter(String id) {
-        return getAdapterItem(id) != null;
+        if(id.contains("{") && id.contains("}")) {
+            try {
+                return NBT.parseNBT(id).hasTag("id");
+            } catch (Exception e) {
+                return false;
+            }
+        }
+        return Material.getMaterial(id.toUpperCase(Locale.ENGLISH),false) != null;
     }
 
     @Override
@@ -5,6 +5,7 @@ import com.ssomar.score.api.executableitems.config.ExecutableItemInterface;
 import com.ssomar.score.api.executableitems.config.ExecutableItemsManagerInterface;
 import de.tr7zw.changeme.nbtapi.NBT;
 import dev.wuason.mechanics.compatibilities.adapter.ImplementationAdapter;
+import org.bukkit.Material;
 import org.bukkit.block.Block;
 import org.bukkit.inventory.ItemStack;
 
@@ -38,6 +39,11 @@ public class ExecutableItemsImpl extends ImplementationAdapter {
         return null;
     }
 
+    @Override
+    public boolean canBeAdapterBlock(Material material) {
+        return false;
+    }
+
     @Override
     public String getAdapterId(Block block) {
         return null;
@@ -1,10 +1,16 @@
 package dev.wuason.mechanics.compatibilities.adapter.plugins;
 
 import de.tr7zw.changeme.nbtapi.NBT;
+import de.tr7zw.changeme.nbtapi.iface.ReadableNBT;
 import dev.lone.itemsadder.api.CustomBlock;
 import dev.lone.itemsadder.api.CustomStack;
+import dev.lone.itemsadder.api.Events.ItemsAdderLoadDataEvent;
+import dev.wuason.mechanics.compatibilities.adapter.Adapter;
 import dev.wuason.mechanics.compatibilities.adapter.ImplementationAdapter;
+import org.bukkit.Material;
 import org.bukkit.block.Block;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
 import org.bukkit.inventory.ItemStack;
 
 import java.util.Locale;
@@ -17,6 +23,16 @@ public class ItemsAdderImpl extends ImplementationAdapter {
         super(PREFIX,"ItemsAdder");
     }
 
+    @Override
+    public boolean isItemCacheable() {
+        return true;
+    }
+
+    @Override
+    public Listener createReloadListener() {
+        return new ReloadListener(this);
+    }
+
     @Override
     public ItemStack getAdapterItem(String id) {
         if(!isEnabled()) return null;
@@ -33,6 +49,20 @@ public class ItemsAdderImpl extends ImplementationAdapter {
         return null;
     }
 
+    @Override
+    public boolean hasItemMarker(ReadableNBT nbt) {
+        return nbt.hasTag("itemsadder");
+    }
+
+    @Override
+    public boolean canBeAdapterBlock(Material material) {
+        // REAL, REAL_NOTE, REAL_TRANSPARENT, REAL_WIRE, TILE and FIRE placed types
+        return switch (material) {
+            case BROWN_MUSHROOM_BLOCK, RED_MUSHROOM_BLOCK, MUSHROOM_STEM, NOTE_BLOCK, CHORUS_PLANT, TRIPWIRE, SPAWNER, FIRE -> true;
+            default -> false;
+        };
+    }
+
     @Override
     public String getAdapterId(Block block) {
         if(!isEnabled()) return null;
@@ -54,4 +84,17 @@ public class ItemsAdderImpl extends ImplementationAdapter {
         if(item == null) return null;
         return NBT.itemStackToNBT(item).toString();
     }
+
+    public static class ReloadListener implements Listener {
+        private final ImplementationAdapter adapter;
+
+        public ReloadListener(ImplementationAdapter adapter) {
+            this.adapter = adapter;
+        }
+
+        @EventHandler
+        public void onItemsLoaded(ItemsAdderLoadDataEvent event) {
+            Adapter.invalidate(adapter);
+        }
+    }
 }
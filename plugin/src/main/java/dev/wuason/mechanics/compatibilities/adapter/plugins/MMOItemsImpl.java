@@ -1,6 +1,7 @@
 package dev.wuason.mechanics.compatibilities.adapter.plugins;
 
 import de.tr7zw.changeme.nbtapi.NBT;
+import de.tr7zw.changeme.nbtapi.iface.ReadableNBT;
 import dev.wuason.mechanics.compatibilities.adapter.ImplementationAdapter;
 import dev.wuason.mechanics.utils.Utils;
 import net.Indyuce.mmoitems.MMOItems;
@@ -8,6 +9,7 @@ import net.Indyuce.mmoitems.api.ItemTier;
 import net.Indyuce.mmoitems.api.Type;
 import net.Indyuce.mmoitems.api.item.mmoitem.MMOItem;
 import net.Indyuce.mmoitems.manager.BlockManager;
+import org.bukkit.Material;
 import org.bukkit.block.Block;
 import org.bukkit.inventory.ItemStack;
 
@@ -58,6 +60,16 @@ public class MMOItemsImpl extends ImplementationAdapter {
         return null;
     }
 
+    @Override
+    public boolean hasItemMarker(ReadableNBT nbt) {
+        return nbt.hasTag("MMOITEMS_ITEM_ID");
+    }
+
+    @Override
+    public boolean canBeAdapterBlock(Material material) {
+        return MMOItems.plugin.getCustomBlocks().isMushroomBlock(material);
+    }
+
     @Override
     public String getAdapterId(Block block) {
         if(!isEnabled()) return null;
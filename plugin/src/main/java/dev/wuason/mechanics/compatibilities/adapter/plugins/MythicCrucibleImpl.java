@@ -1,6 +1,7 @@
 package dev.wuason.mechanics.compatibilities.adapter.plugins;
 
 import de.tr7zw.changeme.nbtapi.NBT;
+import de.tr7zw.changeme.nbtapi.iface.ReadableNBT;
 import dev.wuason.mechanics.compatibilities.adapter.ImplementationAdapter;
 import io.lumine.mythic.bukkit.BukkitAdapter;
 import io.lumine.mythic.bukkit.MythicBukkit;
@@ -41,6 +42,11 @@ public class MythicCrucibleImpl extends ImplementationAdapter {
         return null;
     }
 
+    @Override
+    public boolean hasItemMarker(ReadableNBT nbt) {
+        return nbt.hasTag("MYTHIC_TYPE");
+    }
+
     @Override
     public String getAdapterId(Block block) {
         if(isEnabled()){
@@ -1,10 +1,12 @@
 package dev.wuason.mechanics.compatibilities.adapter.plugins;
 
 import de.tr7zw.changeme.nbtapi.NBT;
+import de.tr7zw.changeme.nbtapi.iface.ReadableNBT;
 import dev.wuason.mechanics.compatibilities.adapter.ImplementationAdapter;
 import io.lumine.mythic.bukkit.BukkitAdapter;
 import io.lumine.mythic.bukkit.MythicBukkit;
 import io.lumine.mythic.core.items.MythicItem;
+import org.bukkit.Material;
 import org.bukkit.block.Block;
 import org.bukkit.inventory.ItemStack;
 
@@ -36,6 +38,16 @@ public class MythicImpl extends ImplementationAdapter {
         return null;
     }
 
+    @Override
+    public boolean hasItemMarker(ReadableNBT nbt) {
+        return nbt.hasTag("MYTHIC_TYPE");
+    }
+
+    @Override
+    public boolean canBeAdapterBlock(Material material) {
+        return false;
+    }
+
     @Override
     public String getAdapterId(Block block) {
         return null;
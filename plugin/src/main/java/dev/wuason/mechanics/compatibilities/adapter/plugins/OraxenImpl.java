@@ -1,10 +1,16 @@
 package dev.wuason.mechanics.compatibilities.adapter.plugins;
 
 import de.tr7zw.changeme.nbtapi.NBT;
+import de.tr7zw.changeme.nbtapi.iface.ReadableNBT;
+import dev.wuason.mechanics.compatibilities.adapter.Adapter;
 import dev.wuason.mechanics.compatibilities.adapter.ImplementationAdapter;
 import io.th0rgal.oraxen.api.OraxenBlocks;
 import io.th0rgal.oraxen.api.OraxenItems;
+import io.th0rgal.oraxen.api.events.OraxenItemsLoadedEvent;
+import org.bukkit.Material;
 import org.bukkit.block.Block;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
 import org.bukkit.inventory.ItemStack;
 
 import java.util.Locale;
@@ -15,6 +21,16 @@ public class OraxenImpl extends ImplementationAdapter {
         super(PREFIX,"Oraxen");
     }
 
+    @Override
+    public boolean isItemCacheable() {
+        return true;
+    }
+
+    @Override
+    public Listener createReloadListener() {
+        return new ReloadListener(this);
+    }
+
     @Override
     public ItemStack getAdapterItem(String id) {
         if(!isEnabled()) return null;
@@ -30,6 +46,18 @@ public class OraxenImpl extends ImplementationAdapter {
         return null;
     }
 
+    @Override
+    public boolean hasItemMarker(ReadableNBT nbt) {
+        ReadableNBT bukkitValues = nbt.getCompound("PublicBukkitValues");
+        return bukkitValues != null && bukkitValues.hasTag("oraxen:id");
+    }
+
+    @Override
+    public boolean canBeAdapterBlock(Material material) {
+        // note block, string and chorus mechanics
+        return material == Material.NOTE_BLOCK || material == Material.TRIPWIRE || material == Material.CHORUS_PLANT;
+    }
+
     @Override
     public String getAdapterId(Block block) {
         if(!isEnabled()) return null;
@@ -52,4 +80,17 @@ public class OraxenImpl extends ImplementationAdapter {
         if(item == null) return null;
         return NBT.itemStackToNBT(item).toString();
     }
+
+    public static class ReloadListener implements Listener {
+        private final ImplementationAdapter adapter;
+
+        public ReloadListener(ImplementationAdapter adapter) {
+            this.adapter = adapter;
+        }
+
+        @EventHandler
+        public void onItemsLoaded(OraxenItemsLoadedEvent event) {
+            Adapter.invalidate(adapter);
+        }
+    }
 }
@@ -1,12 +1,8 @@
 package dev.wuason.mechanics.configuration.inventories;
 
-import dev.wuason.mechanics.compatibilities.adapter.Adapter;
 import dev.wuason.mechanics.invmechanic.items.ItemInterface;
 import dev.wuason.mechanics.invmechanic.types.InvCustom;
-import dev.wuason.mechanics.utils.AdventureUtils;
-import dev.wuason.mechanics.utils.Utils;
 import org.apache.commons.lang3.function.TriConsumer;
-import org.bukkit.Bukkit;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.event.inventory.InventoryType;
@@ -32,30 +28,12 @@ public class InventoryConfig {
     private HashMap<String, Object> data = new HashMap<>();
     private final Function<InvCustom, Inventory> createInventoryFunction;
     private BiConsumer<ItemInterface, ItemConfig> itemBlockedConsumer;
+    private BiFunction<ItemConfig, Integer, ItemStack> dynamicItemRenderer;
+    private InventoryTemplate template;
 
 
     public InventoryConfig(ConfigurationSection section, InventoryConfigManager manager, Consumer<InventoryConfig> onLoad, TriConsumer<InventoryConfig, ConfigurationSection, ItemConfig> onItemLoad, @Nullable BiConsumer<ItemInterface, ItemConfig> itemBlockedConsumer) {
-        createInventoryFunction = (invCustom) -> {
-            String type = section.getString("type", "CHEST").toUpperCase(Locale.ENGLISH);
-            InventoryType inventoryType = InventoryType.valueOf(type);
-            Inventory inv = null;
-            switch (inventoryType){
-                case CHEST -> {
-                    int size = (section.getInt("rows", 3) * 9);
-                    inv = Bukkit.createInventory(invCustom, size, AdventureUtils.deserializeLegacy(section.getString("title", "Inventory"), null));
-                }
-                default -> {
-                    inv = Bukkit.createInventory(invCustom, inventoryType, AdventureUtils.deserializeLegacy(section.getString("title", "Inventory"), null));
-                }
-            }
-
-            invCustom.setDamageCancel(true);
-            invCustom.setDamageCancel(true);
-            invCustom.addClickEventsListeners(inventoryClickEvent -> inventoryClickEvent.setCancelled(true));
-
-            return inv;
-        };
-
+        createInventoryFunction = this::createInventory;
 
         this.itemBlockedConsumer = itemBlockedConsumer;
         this.id = section.getName();
@@ -67,26 +45,7 @@ public class InventoryConfig {
     }
 
     public InventoryConfig(ConfigurationSection section, InventoryConfigManager manager){
-        createInventoryFunction = (invCustom) -> {
-            String type = section.getString("type", "CHEST").toUpperCase(Locale.ENGLISH);
-            InventoryType inventoryType = InventoryType.valueOf(type);
-            Inventory inv = null;
-            switch (inventoryType){
-                case CHEST -> {
-                    int size = (section.getInt("rows", 3) * 9);
-                    inv = Bukkit.createInventory(invCustom, size, AdventureUtils.deserializeLegacy(section.getString("title", "Inventory"), null));
-                }
-                default -> {
-                    inv = Bukkit.createInventory(invCustom, inventoryType, AdventureUtils.deserializeLegacy(section.getString("title", "Inventory"), null));
-                }
-            }
-            invCustom.setDamageCancel(true);
-            invCustom.setDamageCancel(true);
-            invCustom.addClickEventsListeners(inventoryClickEvent -> inventoryClickEvent.setCancelled(true));
-
-            return inv;
-        };
-
+        createInventoryFunction = this::createInventory;
         this.id = section.getName();
         this.section = section;
         this.manager = manager;
@@ -95,18 +54,14 @@ public class InventoryConfig {
     public void load() {
         ConfigurationSection itemsSection = this.section.getConfigurationSection("items");
         if(itemsSection != null){
-            for(String id : itemsSection.getKeys(false)){
-                ConfigurationSection itemSection = itemsSection.getConfigurationSection(id);
+            InventoryTemplate template = getTemplate();
+            for(ItemConfig itemConfig : template.getItemConfigs().values()){
+                ConfigurationSection itemSection = itemsSection.getConfigurationSection(itemConfig.getId());
                 if(itemSection != null){
-                    String actionId = itemSection.getString("id", "");
-                    String itemId = itemSection.getString("item", "");
-                    int amount = itemSection.getInt("amount", 1);
-                    List<Integer> slots = Utils.configFill(itemSection.getStringList("slots"));
-                    ItemConfig itemConfig = new ItemConfig(id, itemId, amount, slots, actionId);
                     if(itemConfig.getActionId().equalsIgnoreCase("blocked")){
                         ItemInterface item = new ItemInterface.Builder()
                                 .setId(itemConfig.getId())
-                                .setItemStack(Adapter.getItemStack(itemConfig.getItemId()))
+                                .setItemStack(template.getItemStack(itemConfig.getId()))
                                 .setAmount(itemConfig.getAmount())
                                 .setSlot(0)
                                 .addData(itemConfig)
@@ -121,6 +76,30 @@ public class InventoryConfig {
         if(this.onLoad != null) this.onLoad.accept(this);
     }
 
+    /**
+     * Creates the inventory of the custom inventory from the template, with the static layer and the dynamic items already set.
+     */
+    private Inventory createInventory(InvCustom invCustom) {
+        Inventory inv = getTemplate().createInventory(invCustom, this.dynamicItemRenderer);
+
+        invCustom.setDamageCancel(true);
+        invCustom.addClickEventsListeners(inventoryClickEvent -> inventoryClickEvent.setCancelled(true));
+
+        return inv;
+    }
+
+    /**
+     * Returns the compiled template of the inventory, shared with the manager when it compiled the same section.
+     * It is compiled again once an adapter reloads its items.
+     */
+    public InventoryTemplate getTemplate() {
+        if(this.template == null || this.template.isStale()){
+            InventoryTemplate compiled = this.manager == null ? null : this.manager.getTemplate(this.id);
+            this.template = compiled != null && compiled.getSection() == this.section ? compiled : InventoryTemplate.compile(this.section);
+        }
+        return this.template;
+    }
+
 
 
     //****************** PUBLIC METHODS ******************//
@@ -186,6 +165,15 @@ public class InventoryConfig {
         this.itemBlockedConsumer = itemBlockedConsumer;
     }
 
+    /**
+     * Sets the function that renders the items of the dynamic slots, the slots of the items that are not blocked,
+     * every time an inventory is created. It receives the item config and the slot, the item of the config is
+     * available with {@code getTemplate().getItemStack(itemConfig.getId())}.
+     */
+    public void setDynamicItemRenderer(BiFunction<ItemConfig, Integer, ItemStack> dynamicItemRenderer) {
+        this.dynamicItemRenderer = dynamicItemRenderer;
+    }
+
     //****************** GETTERS ******************//
 
     public String getTitle(){
@@ -227,6 +215,10 @@ public class InventoryConfig {
         return this.createInventoryFunction;
     }
 
+    public BiFunction<ItemConfig, Integer, ItemStack> getDynamicItemRenderer() {
+        return this.dynamicItemRenderer;
+    }
+
     public static class Builder {
         private String id;
         private ConfigurationSection section;
@@ -234,6 +226,7 @@ public class InventoryConfig {
         private Consumer<InventoryConfig> onLoad;
         private TriConsumer<InventoryConfig, ConfigurationSection, ItemConfig> onItemLoad;
         private BiConsumer<ItemInterface, ItemConfig> itemBlockedConsumer;
+        private BiFunction<ItemConfig, Integer, ItemStack> dynamicItemRenderer;
         private HashMap<String, Object> data = new HashMap<>();
 
         public Builder() {
@@ -277,6 +270,10 @@ public class InventoryConfig {
             this.itemBlockedConsumer = itemBlockedConsumer;
             return this;
         }
+        public Builder setDynamicItemRenderer(BiFunction<ItemConfig, Integer, ItemStack> dynamicItemRenderer) {
+            this.dynamicItemRenderer = dynamicItemRenderer;
+            return this;
+        }
         public String getId() {
             return this.id;
         }
@@ -306,6 +303,7 @@ public class InventoryConfig {
             if(this.onItemLoad == null && this.onLoad == null) inventoryConfig = new InventoryConfig(this.section, this.manager);
             else inventoryConfig = new InventoryConfig(this.section, this.manager, this.onLoad, this.onItemLoad, this.itemBlockedConsumer);
             inventoryConfig.setData(this.data);
+            inventoryConfig.setDynamicItemRenderer(this.dynamicItemRenderer);
             return inventoryConfig;
         }
     }
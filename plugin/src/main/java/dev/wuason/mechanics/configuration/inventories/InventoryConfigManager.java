@@ -1,7 +1,10 @@
 package dev.wuason.mechanics.configuration.inventories;
 
+import dev.wuason.mechanics.compatibilities.adapter.Adapter;
+import dev.wuason.mechanics.compatibilities.adapter.AdapterIdValidator;
 import dev.wuason.mechanics.invmechanic.items.ItemInterface;
 import dev.wuason.mechanics.mechanics.MechanicAddon;
+import dev.wuason.mechanics.utils.AdventureUtils;
 import org.apache.commons.lang3.function.TriConsumer;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.YamlConfiguration;
@@ -10,15 +13,20 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 public class InventoryConfigManager {
     private final MechanicAddon core;
     private final HashMap<String, ConfigurationSection> inventories = new HashMap<>();
+    private final HashMap<String, InventoryTemplate> templates = new HashMap<>();
+    private final List<AdapterIdValidator.Reference> itemReferences = new ArrayList<>();
     private final File directory;
 
     /**
@@ -48,6 +56,8 @@ public class InventoryConfigManager {
 
     public void load(File dir) {
         inventories.clear();
+        templates.clear();
+        itemReferences.clear();
         dir.mkdirs();
         File[] files = Arrays.stream(dir.listFiles()).filter(f -> {
 
@@ -61,6 +71,7 @@ public class InventoryConfigManager {
         for (File file : files) {
 
             YamlConfiguration config = YamlConfiguration.loadConfiguration(file);
+            itemReferences.addAll(AdapterIdValidator.scan(file, Set.of("item")));
 
             ConfigurationSection sectionInventories = config.getConfigurationSection("inventories");
 
@@ -76,6 +87,67 @@ public class InventoryConfigManager {
                 }
             }
         }
+        warmUpItems();
+        compileTemplates();
+        for (AdapterIdValidator.Invalid invalid : validateItems().getInvalid()) {
+            AdventureUtils.sendMessagePluginConsole(core, "<red>" + invalid);
+        }
+    }
+
+    /**
+     * Validates the adapter ids of the items of the loaded inventory files.
+     *
+     * @return the report with the invalid ids and the file and line where they are written
+     */
+    public AdapterIdValidator.Report validateItems() {
+        return AdapterIdValidator.validate(itemReferences);
+    }
+
+    /**
+     * Builds the items of every loaded inventory ahead of the first time the inventories are opened.
+     */
+    private void warmUpItems() {
+        List<String> itemIds = new ArrayList<>();
+        for (ConfigurationSection sectionInventory : inventories.values()) {
+            ConfigurationSection itemsSection = sectionInventory.getConfigurationSection("items");
+            if (itemsSection == null) continue;
+            for (String key : itemsSection.getKeys(false)) {
+                String itemId = itemsSection.getString(key + ".item", "");
+                if (!itemId.isEmpty()) itemIds.add(itemId);
+            }
+        }
+        Adapter.warmUp(itemIds);
+    }
+
+    /**
+     * Compiles the template of every loaded inventory, so the inventories created from them do not parse the sections.
+     */
+    private void compileTemplates() {
+        inventories.forEach(this::compileTemplate);
+    }
+
+    private InventoryTemplate compileTemplate(String id, ConfigurationSection sectionInventory) {
+        try {
+            InventoryTemplate template = InventoryTemplate.compile(sectionInventory);
+            templates.put(id, template);
+            return template;
+        } catch (Exception e) {
+            AdventureUtils.sendMessagePluginConsole(core, "<red>Could not compile the inventory " + id + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Returns the compiled template of an inventory, compiled again if an adapter reloaded its items since.
+     *
+     * @param id The id of the inventory.
+     * @return The template, or null if the inventory is not loaded.
+     */
+    public InventoryTemplate getTemplate(String id) {
+        String key = id.toUpperCase(Locale.ENGLISH);
+        InventoryTemplate template = templates.get(key);
+        if (template != null && template.isStale()) template = compileTemplate(key, template.getSection());
+        return template;
     }
 
     /**
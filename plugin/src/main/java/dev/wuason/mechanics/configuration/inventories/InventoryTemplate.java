@@ -0,0 +1,237 @@
+package dev.wuason.mechanics.configuration.inventories;
+
+import dev.wuason.mechanics.compatibilities.adapter.Adapter;
+import dev.wuason.mechanics.invmechanic.types.InvCustom;
+import dev.wuason.mechanics.utils.AdventureUtils;
+import dev.wuason.mechanics.utils.Utils;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.BiFunction;
+
+/**
+ * An inventory section compiled once: the type, size and title, the items of every item config and a static layer
+ * with the blocked items in their slots. Inventories are created from it with a single {@link Inventory#setContents},
+ * so only the dynamic slots, the slots of the items that are not blocked, need to be rendered for each instance.
+ * <p>
+ * The template is immutable, the items it holds are shared and never handed out without being copied. It becomes
+ * stale when an adapter reloads its items, see {@link #isStale()}.
+ */
+public final class InventoryTemplate {
+
+    private final String id;
+    private final ConfigurationSection section;
+    private final InventoryType type;
+    private final int size;
+    private final String title;
+    private final Map<String, ItemConfig> itemConfigs;
+    private final Map<String, ItemStack> items;
+    private final ItemStack[] staticLayer;
+    private final int[] dynamicSlots;
+    // the item config rendered in each dynamic slot
+    private final ItemConfig[] dynamicItemConfigs;
+    private final int adapterGeneration;
+
+    private InventoryTemplate(String id, ConfigurationSection section, InventoryType type, int size, String title, Map<String, ItemConfig> itemConfigs, Map<String, ItemStack> items, ItemStack[] staticLayer, int[] dynamicSlots, ItemConfig[] dynamicItemConfigs, int adapterGeneration) {
+        this.id = id;
+        this.section = section;
+        this.type = type;
+        this.size = size;
+        this.title = title;
+        this.itemConfigs = itemConfigs;
+        this.items = items;
+        this.staticLayer = staticLayer;
+        this.dynamicSlots = dynamicSlots;
+        this.dynamicItemConfigs = dynamicItemConfigs;
+        this.adapterGeneration = adapterGeneration;
+    }
+
+    /**
+     * Compiles an inventory section, resolving the title and the items of the section.
+     *
+     * @param section The inventory section.
+     * @return The template.
+     */
+    public static InventoryTemplate compile(ConfigurationSection section) {
+        int adapterGeneration = Adapter.getGeneration();
+        String typeName = section.getString("type", "CHEST").toUpperCase(Locale.ENGLISH);
+        InventoryType type;
+        try {
+            type = InventoryType.valueOf(typeName);
+        } catch (IllegalArgumentException e) {
+            AdventureUtils.sendMessagePluginConsole("<red>Unknown inventory type " + typeName + " in the inventory " + section.getName() + ", using CHEST");
+            type = InventoryType.CHEST;
+        }
+        int size = type == InventoryType.CHEST ? section.getInt("rows", 3) * 9 : type.getDefaultSize();
+        String title = AdventureUtils.deserializeLegacy(section.getString("title", "Inventory"), null);
+
+        Map<String, ItemConfig> itemConfigs = new LinkedHashMap<>();
+        Map<String, ItemStack> items = new HashMap<>();
+        ItemStack[] staticLayer = new ItemStack[size];
+        TreeSet<Integer> dynamicSlots = new TreeSet<>();
+        ItemConfig[] dynamicItemConfigs = new ItemConfig[size];
+        ConfigurationSection itemsSection = section.getConfigurationSection("items");
+        if (itemsSection != null) {
+            for (String key : itemsSection.getKeys(false)) {
+                ConfigurationSection itemSection = itemsSection.getConfigurationSection(key);
+                if (itemSection == null) continue;
+                List<Integer> slots = Utils.configFill(itemSection.getStringList("slots"));
+                ItemConfig itemConfig = new ItemConfig(key, itemSection.getString("item", ""), itemSection.getInt("amount", 1), slots, itemSection.getString("id", ""));
+                itemConfigs.put(key, itemConfig);
+                ItemStack itemStack = itemConfig.getItemId().isEmpty() ? null : Adapter.getItemStack(itemConfig.getItemId());
+                if (itemStack != null) {
+                    itemStack = itemStack.clone();
+                    itemStack.setAmount(itemConfig.getAmount());
+                    items.put(key, itemStack);
+                }
+                boolean blocked = itemConfig.getActionId().equalsIgnoreCase("blocked");
+                for (int slot : itemConfig.getSlots()) {
+                    if (slot < 0 || slot >= size) continue;
+                    if (blocked) {
+                        staticLayer[slot] = itemStack;
+                    } else {
+                        dynamicSlots.add(slot);
+                        dynamicItemConfigs[slot] = itemConfig;
+                    }
+                }
+            }
+        }
+        return new InventoryTemplate(
+                section.getName(),
+                section,
+                type,
+                size,
+                title,
+                Collections.unmodifiableMap(itemConfigs),
+                Collections.unmodifiableMap(items),
+                staticLayer,
+                dynamicSlots.stream().mapToInt(Integer::intValue).toArray(),
+                dynamicItemConfigs,
+                adapterGeneration
+        );
+    }
+
+    /**
+     * Creates an inventory held by the custom inventory, filled with the static layer.
+     */
+    public Inventory createInventory(InvCustom holder) {
+        return createInventory(holder, null);
+    }
+
+    /**
+     * Creates an inventory held by the custom inventory, filled with the static layer and the items rendered for
+     * the dynamic slots, all set with a single {@link Inventory#setContents}.
+     *
+     * @param holder          The custom inventory.
+     * @param dynamicRenderer Renders the item of a dynamic slot from its item config and the slot, a null item
+     *                        leaves the slot empty. Null leaves every dynamic slot empty.
+     * @return The inventory.
+     */
+    public Inventory createInventory(InvCustom holder, @Nullable BiFunction<ItemConfig, Integer, ItemStack> dynamicRenderer) {
+        Inventory inventory = type == InventoryType.CHEST ? Bukkit.createInventory(holder, size, title) : Bukkit.createInventory(holder, type, title);
+        // the inventory copies the items, so the shared layer is not modified
+        ItemStack[] contents = staticLayer.length > inventory.getSize() ? Arrays.copyOf(staticLayer, inventory.getSize()) : staticLayer;
+        if (dynamicRenderer != null && dynamicSlots.length > 0) {
+            if (contents == staticLayer) contents = staticLayer.clone();
+            for (int slot : dynamicSlots) {
+                if (slot >= contents.length) continue;
+                ItemStack itemStack = dynamicRenderer.apply(dynamicItemConfigs[slot], slot);
+                if (itemStack != null) contents[slot] = itemStack;
+            }
+        }
+        inventory.setContents(contents);
+        return inventory;
+    }
+
+    /**
+     * Tells if an adapter reloaded its items after the template was compiled, so its items may be outdated.
+     */
+    public boolean isStale() {
+        return adapterGeneration != Adapter.getGeneration();
+    }
+
+    //****************** GETTERS ******************//
+
+    public String getId() {
+        return id;
+    }
+
+    public ConfigurationSection getSection() {
+        return section;
+    }
+
+    public InventoryType getType() {
+        return type;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public Map<String, ItemConfig> getItemConfigs() {
+        return itemConfigs;
+    }
+
+    /**
+     * Returns a copy of the item of an item config.
+     *
+     * @param itemConfigId The id of the item config.
+     * @return The item, or null if the item config does not exist or its item could not be resolved.
+     */
+    public ItemStack getItemStack(String itemConfigId) {
+        ItemStack itemStack = items.get(itemConfigId);
+        return itemStack == null ? null : itemStack.clone();
+    }
+
+    /**
+     * Returns a copy of the static layer, the blocked items by slot.
+     */
+    public ItemStack[] getStaticLayer() {
+        ItemStack[] layer = new ItemStack[staticLayer.length];
+        for (int i = 0; i < layer.length; i++) {
+            if (staticLayer[i] != null) layer[i] = staticLayer[i].clone();
+        }
+        return layer;
+    }
+
+    /**
+     * Returns the slots of the items that are not blocked, the ones that are rendered for each inventory.
+     */
+    public int[] getDynamicSlots() {
+        return dynamicSlots.clone();
+    }
+
+    /**
+     * Returns the item config rendered in a dynamic slot.
+     *
+     * @return The item config, or null if the slot is not dynamic.
+     */
+    public ItemConfig getDynamicItemConfig(int slot) {
+        return slot < 0 || slot >= dynamicItemConfigs.length ? null : dynamicItemConfigs[slot];
+    }
+
+    public List<ItemConfig> getDynamicItemConfigs() {
+        List<ItemConfig> list = new ArrayList<>();
+        for (ItemConfig itemConfig : itemConfigs.values()) {
+            if (!itemConfig.getActionId().equalsIgnoreCase("blocked")) list.add(itemConfig);
+        }
+        return list;
+    }
+}
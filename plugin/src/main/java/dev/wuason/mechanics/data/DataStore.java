@@ -0,0 +1,336 @@
+package dev.wuason.mechanics.data;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalNotification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Combines an in-memory cache with persistent {@link DataTier}s ordered from the fastest to the slowest,
+ * the last tier being the source of truth.
+ * <p>
+ * Reads look the data up in memory and then in each tier, with {@link ReadPolicy#READ_THROUGH} the data found
+ * in a slower tier is copied to the memory and the faster tiers. Writes go to every tier at once with
+ * {@link WritePolicy#WRITE_THROUGH}, or are kept dirty in memory and written periodically with
+ * {@link WritePolicy#WRITE_BEHIND}.
+ *
+ * <pre>{@code
+ * DataStore store = DataStore.builder()
+ *         .addTier(DataTier.of(localDataManager))
+ *         .addTier(DataTier.of(sqlManager))
+ *         .writePolicy(DataStore.WritePolicy.WRITE_BEHIND)
+ *         .build();
+ * }</pre>
+ */
+public class DataStore {
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private final Cache<String, Data> memory;
+    private final List<DataTier> tiers;
+    private final ReadPolicy readPolicy;
+    private final WritePolicy writePolicy;
+    private final Logger logger;
+    // data saved in memory that has not been written to the tiers yet, keyed by dataType/id
+    private final Map<String, Data> dirty = new ConcurrentHashMap<>();
+    // dirty data evicted from memory that is being written to the tiers, still served by the reads until it is written
+    private final Map<String, Data> pending = new ConcurrentHashMap<>();
+    private final List<BiConsumer<String, String>> invalidationListeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService writeBehindExecutor;
+
+    protected DataStore(Builder builder) {
+        this.tiers = List.copyOf(builder.tiers);
+        this.readPolicy = builder.readPolicy;
+        this.writePolicy = builder.writePolicy;
+        this.logger = builder.logger;
+        CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder().maximumSize(builder.maximumSize).recordStats();
+        if (builder.expireAfterAccessMinutes > 0) cacheBuilder.expireAfterAccess(builder.expireAfterAccessMinutes, TimeUnit.MINUTES);
+        this.memory = cacheBuilder.<String, Data>removalListener(this::onRemoval).build();
+        if (writePolicy == WritePolicy.WRITE_BEHIND) {
+            this.writeBehindExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Mechanics-DataStore-WriteBehind");
+                thread.setDaemon(true);
+                return thread;
+            });
+            writeBehindExecutor.scheduleWithFixedDelay(this::flush, builder.writeBehindDelaySeconds, builder.writeBehindDelaySeconds, TimeUnit.SECONDS);
+        } else {
+            this.writeBehindExecutor = null;
+        }
+    }
+
+    private static String key(String dataType, String id) {
+        return dataType + "/" + id;
+    }
+
+    private void onRemoval(RemovalNotification<String, Data> notification) {
+        // dirty data evicted from memory must still reach the tiers
+        if (!notification.wasEvicted() || notification.getKey() == null || notification.getValue() == null) return;
+        String key = notification.getKey();
+        Data data = notification.getValue();
+        if (!dirty.remove(key, data)) return;
+        pending.put(key, data);
+        try {
+            writeBehindExecutor.execute(() -> writePending(key, data));
+        } catch (RejectedExecutionException e) {
+            writePending(key, data);
+        }
+    }
+
+    private void writePending(String key, Data data) {
+        // removed or invalidated while it was waiting
+        if (pending.get(key) != data) return;
+        try {
+            writeTiers(data);
+        } finally {
+            pending.remove(key, data);
+        }
+    }
+
+    /**
+     * Retrieves the data from the memory or, if it is not there, from the first tier that has it.
+     *
+     * @param dataType The data type.
+     * @param id       The id of the data.
+     * @return The data, or null if no tier has it.
+     */
+    public Data getData(String dataType, String id) {
+        String key = key(dataType, id);
+        Data data = memory.getIfPresent(key);
+        if (data != null) return data;
+        data = pending.get(key);
+        if (data != null) return data;
+        for (int i = 0; i < tiers.size(); i++) {
+            data = tiers.get(i).getData(dataType, id);
+            if (data == null) continue;
+            if (readPolicy == ReadPolicy.READ_THROUGH) {
+                for (int j = 0; j < i; j++) {
+                    tiers.get(j).saveData(data);
+                }
+                memory.put(key, data);
+            }
+            return data;
+        }
+        return null;
+    }
+
+    public boolean existData(String dataType, String id) {
+        String key = key(dataType, id);
+        if (memory.getIfPresent(key) != null || pending.containsKey(key)) return true;
+        for (DataTier tier : tiers) {
+            if (tier.existData(dataType, id)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Saves the data in memory and writes it to the tiers according to the write policy.
+     *
+     * @param data The data.
+     */
+    public void saveData(Data data) {
+        String key = key(data.getDataType(), data.getId());
+        memory.put(key, data);
+        if (writePolicy == WritePolicy.WRITE_THROUGH) {
+            dirty.remove(key);
+            writeTiers(data);
+            return;
+        }
+        dirty.put(key, data);
+    }
+
+    /**
+     * Marks a data that was modified in place so it is written with the next flush.
+     *
+     * @param data The data.
+     */
+    public void markDirty(Data data) {
+        saveData(data);
+    }
+
+    public boolean isDirty(String dataType, String id) {
+        String key = key(dataType, id);
+        return dirty.containsKey(key) || pending.containsKey(key);
+    }
+
+    public void removeData(String dataType, String id) {
+        String key = key(dataType, id);
+        dirty.remove(key);
+        pending.remove(key);
+        memory.invalidate(key);
+        for (DataTier tier : tiers) {
+            tier.removeData(dataType, id);
+        }
+    }
+
+    /**
+     * Drops the copies of the data kept in memory and in every tier but the source of truth, discarding
+     * changes that were not written yet, and notifies the invalidation listeners. Use it when the data
+     * was changed elsewhere, for example by another server.
+     *
+     * @param dataType The data type.
+     * @param id       The id of the data.
+     */
+    public void invalidate(String dataType, String id) {
+        String key = key(dataType, id);
+        dirty.remove(key);
+        pending.remove(key);
+        memory.invalidate(key);
+        for (int i = 0; i < tiers.size() - 1; i++) {
+            tiers.get(i).removeData(dataType, id);
+        }
+        for (BiConsumer<String, String> listener : invalidationListeners) {
+            listener.accept(dataType, id);
+        }
+    }
+
+    /**
+     * Drops every data kept in memory after writing the dirty data to the tiers.
+     */
+    public void invalidateAll() {
+        flush();
+        memory.invalidateAll();
+    }
+
+    /**
+     * Registers a listener called with the data type and the id of every invalidated data.
+     *
+     * @param listener The listener.
+     */
+    public void onInvalidate(BiConsumer<String, String> listener) {
+        invalidationListeners.add(listener);
+    }
+
+    /**
+     * Writes every dirty data to the tiers on the calling thread.
+     */
+    public void flush() {
+        for (Map.Entry<String, Data> entry : new ArrayList<>(dirty.entrySet())) {
+            if (dirty.remove(entry.getKey(), entry.getValue())) writeTiers(entry.getValue());
+        }
+    }
+
+    private void writeTiers(Data data) {
+        for (DataTier tier : tiers) {
+            try {
+                tier.saveData(data);
+            } catch (RuntimeException e) {
+                logger.log(Level.SEVERE, "Could not write data " + key(data.getDataType(), data.getId()), e);
+            }
+        }
+    }
+
+    /**
+     * Flushes the dirty data and stops the write behind task.
+     */
+    public void close() {
+        if (writeBehindExecutor != null) {
+            writeBehindExecutor.shutdown();
+            try {
+                writeBehindExecutor.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+    }
+
+    public CacheStats getCacheStats() {
+        return memory.stats();
+    }
+
+    public List<DataTier> getTiers() {
+        return tiers;
+    }
+
+    public ReadPolicy getReadPolicy() {
+        return readPolicy;
+    }
+
+    public WritePolicy getWritePolicy() {
+        return writePolicy;
+    }
+
+    public enum ReadPolicy {
+        /**
+         * Data found in a slower tier is copied to the memory and to the faster tiers.
+         */
+        READ_THROUGH,
+        /**
+         * Data found in a tier is returned without being copied anywhere.
+         */
+        READ_ONLY
+    }
+
+    public enum WritePolicy {
+        /**
+         * Every save is written to all the tiers on the calling thread.
+         */
+        WRITE_THROUGH,
+        /**
+         * Saves are kept in memory and written to the tiers periodically on a background thread.
+         */
+        WRITE_BEHIND
+    }
+
+    public static class Builder {
+        private final List<DataTier> tiers = new ArrayList<>();
+        private ReadPolicy readPolicy = ReadPolicy.READ_THROUGH;
+        private WritePolicy writePolicy = WritePolicy.WRITE_THROUGH;
+        private long maximumSize = 10000L;
+        private long expireAfterAccessMinutes = 10L;
+        private long writeBehindDelaySeconds = 5L;
+        private Logger logger = Logger.getLogger("Mechanics");
+
+        protected Builder() {
+        }
+
+        /**
+         * Adds a tier after the ones already added, the last tier is the source of truth.
+         */
+        public Builder addTier(DataTier tier) {
+            this.tiers.add(tier);
+            return this;
+        }
+
+        public Builder memory(long maximumSize, long expireAfterAccessMinutes) {
+            this.maximumSize = maximumSize;
+            this.expireAfterAccessMinutes = expireAfterAccessMinutes;
+            return this;
+        }
+
+        public Builder readPolicy(ReadPolicy readPolicy) {
+            this.readPolicy = readPolicy;
+            return this;
+        }
+
+        public Builder writePolicy(WritePolicy writePolicy) {
+            this.writePolicy = writePolicy;
+            return this;
+        }
+
+        public Builder writeBehindDelay(long seconds) {
+            this.writeBehindDelaySeconds = seconds;
+            return this;
+        }
+
+        public Builder logger(Logger logger) {
+            this.logger = logger;
+            return this;
+        }
+
+        public DataStore build() {
+            if (tiers.isEmpty()) throw new IllegalStateException("A data store needs at least one tier");
+            return new DataStore(this);
+        }
+    }
+}
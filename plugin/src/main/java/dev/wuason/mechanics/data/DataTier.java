@@ -0,0 +1,78 @@
+package dev.wuason.mechanics.data;
+
+import dev.wuason.mechanics.data.local.LocalDataManager;
+import dev.wuason.mechanics.data.mysql.SqlManager;
+
+/**
+ * A persistent level of a {@link DataStore}, such as the local disk or a SQL database.
+ */
+public interface DataTier {
+
+    Data getData(String dataType, String id);
+
+    boolean existData(String dataType, String id);
+
+    void saveData(Data data);
+
+    void removeData(String dataType, String id);
+
+    /**
+     * Creates a tier backed by the local data folder of an addon.
+     *
+     * @param localDataManager The local data manager, its data folder must be created.
+     * @return The tier.
+     */
+    static DataTier of(LocalDataManager localDataManager) {
+        return new DataTier() {
+            @Override
+            public Data getData(String dataType, String id) {
+                return localDataManager.getData(id, dataType);
+            }
+
+            @Override
+            public boolean existData(String dataType, String id) {
+                return localDataManager.existData(dataType, id);
+            }
+
+            @Override
+            public void saveData(Data data) {
+                localDataManager.saveData(data);
+            }
+
+            @Override
+            public void removeData(String dataType, String id) {
+                localDataManager.removeData(dataType, id);
+            }
+        };
+    }
+
+    /**
+     * Creates a tier backed by a SQL database, the data type is used as the table name.
+     *
+     * @param sqlManager The sql manager.
+     * @return The tier.
+     */
+    static DataTier of(SqlManager sqlManager) {
+        return new DataTier() {
+            @Override
+            public Data getData(String dataType, String id) {
+                return sqlManager.getData(dataType, id);
+            }
+
+            @Override
+            public boolean existData(String dataType, String id) {
+                return sqlManager.existData(dataType, id);
+            }
+
+            @Override
+            public void saveData(Data data) {
+                sqlManager.saveData(data);
+            }
+
+            @Override
+            public void removeData(String dataType, String id) {
+                sqlManager.removeDataStr(dataType, id);
+            }
+        };
+    }
+}
@@ -0,0 +1,126 @@
+package dev.wuason.mechanics.data.local;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stores every data in its own file at {@code <dir>/<dataType>/<id>.mechanic}.
+ */
+public class FileDataStorage implements LocalDataStorage {
+
+    public static final String FILE_EXTENSION = ".mechanic";
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    private final File dir;
+    private final Map<String, Set<String>> idIndex = new ConcurrentHashMap<>();
+    private final Set<Path> createdDirectories = ConcurrentHashMap.newKeySet();
+
+    public FileDataStorage(File dir) {
+        this.dir = dir;
+    }
+
+    private File getDataFile(String dataType, String id) {
+        return new File(dir.getPath() + "/" + dataType + "/" + id + FILE_EXTENSION);
+    }
+
+    /**
+     * Returns the ids known for the data type, listing its folder only the first time.
+     */
+    private Set<String> getIndex(String dataType) {
+        return idIndex.computeIfAbsent(dataType, type -> {
+            Set<String> ids = ConcurrentHashMap.newKeySet();
+            File[] files = new File(dir.getPath() + "/" + type + "/").listFiles((d, name) -> name.endsWith(FILE_EXTENSION));
+            if (files != null) {
+                for (File f : files) {
+                    String name = f.getName();
+                    ids.add(name.substring(0, name.length() - FILE_EXTENSION.length()));
+                }
+            }
+            return ids;
+        });
+    }
+
+    @Override
+    public Set<String> getDataTypes() {
+        Set<String> dataTypes = ConcurrentHashMap.newKeySet();
+        File[] folders = dir.listFiles(File::isDirectory);
+        if (folders != null) {
+            for (File folder : folders) {
+                if (!getIndex(folder.getName()).isEmpty()) dataTypes.add(folder.getName());
+            }
+        }
+        idIndex.forEach((dataType, ids) -> {
+            if (!ids.isEmpty()) dataTypes.add(dataType);
+        });
+        return dataTypes;
+    }
+
+    @Override
+    public boolean existsDataType(String dataType) {
+        return new File(dir, dataType).isDirectory();
+    }
+
+    @Override
+    public Set<String> getIds(String dataType) {
+        return Set.copyOf(getIndex(dataType));
+    }
+
+    @Override
+    public boolean exists(String dataType, String id) {
+        return getIndex(dataType).contains(id);
+    }
+
+    @Override
+    public String read(String dataType, String id) throws IOException {
+        try (FileChannel channel = FileChannel.open(getDataFile(dataType, id).toPath(), StandardOpenOption.READ)) {
+            // read into the heap, a mapped buffer would keep the file locked on Windows until it is collected
+            long size = channel.size();
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) break;
+            }
+            return new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the data to a temporary file, forces it to the disk and moves it over the previous file,
+     * so a crash in the middle of the write never leaves a corrupted file.
+     */
+    @Override
+    public void write(String dataType, String id, String data) throws IOException {
+        Path target = getDataFile(dataType, id).toPath();
+        Path parent = target.getParent();
+        if (createdDirectories.add(parent)) Files.createDirectories(parent);
+        Path temp = parent.resolve(id + FILE_EXTENSION + TEMP_EXTENSION);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(data.getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) channel.write(buffer);
+            channel.force(true);
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        getIndex(dataType).add(id);
+    }
+
+    @Override
+    public void delete(String dataType, String id) throws IOException {
+        getIndex(dataType).remove(id);
+        Files.deleteIfExists(getDataFile(dataType, id).toPath());
+    }
+
+    public File getDir() {
+        return dir;
+    }
+}
@@ -1,60 +1,222 @@
 package dev.wuason.mechanics.data.local;
 
-import com.sk89q.worldedit.util.YAMLConfiguration;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import dev.wuason.mechanics.Mechanics;
 import dev.wuason.mechanics.data.Data;
 import dev.wuason.mechanics.utils.Utils;
-import org.bukkit.configuration.file.FileConfiguration;
-import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.plugin.Plugin;
 
 import java.io.*;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class LocalDataManager {
 
+    public static final long DEFAULT_MAXIMUM_SIZE = 10000L;
+    public static final long DEFAULT_EXPIRE_AFTER_ACCESS_MINUTES = 10L;
+    public static final int STREAM_BATCH_SIZE = 256;
+    public static final int IO_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
     private Mechanics core;
     private Plugin addon;
     private File dir;
+    private LocalDataStorage storage;
 
-    private HashMap<String, Data> dataMap = new HashMap<>();
+    private final Cache<String, Data> dataMap;
+    // latest content waiting to be written per dataType/id, an empty optional means delete
+    private final Map<String, Optional<String>> pendingWrites = new ConcurrentHashMap<>();
+    // data types written since their last sync, each with a sync queued behind the writes of the batch
+    private final Set<String> unsyncedDataTypes = ConcurrentHashMap.newKeySet();
+    private final ExecutorService[] ioExecutors;
+    private volatile boolean closed = false;
 
     private static ArrayList<LocalDataManager> localDataManagerList = new ArrayList<>();
 
     public LocalDataManager(Plugin addon) {
+        this(addon, DEFAULT_MAXIMUM_SIZE, DEFAULT_EXPIRE_AFTER_ACCESS_MINUTES);
+    }
+
+    /**
+     * Creates a manager whose in-memory cache holds at most {@code maximumSize} entries.
+     *
+     * @param addon                     The addon that owns the data folder.
+     * @param maximumSize               The maximum number of cached entries.
+     * @param expireAfterAccessMinutes  Minutes after the last access before an entry is dropped, or 0 to never expire.
+     */
+    public LocalDataManager(Plugin addon, long maximumSize, long expireAfterAccessMinutes) {
+        this(addon, newCacheBuilder(expireAfterAccessMinutes).maximumSize(maximumSize).<String, Data>build());
+    }
+
+    /**
+     * Creates a manager whose in-memory cache is bounded by the approximate size in bytes of the
+     * serialized data it holds, instead of by the number of entries.
+     *
+     * @param addon                     The addon that owns the data folder.
+     * @param maximumWeightBytes        The approximate maximum amount of bytes kept in memory.
+     * @param expireAfterAccessMinutes  Minutes after the last access before an entry is dropped, or 0 to never expire.
+     * @return The new manager.
+     */
+    public static LocalDataManager weighted(Plugin addon, long maximumWeightBytes, long expireAfterAccessMinutes) {
+        return new LocalDataManager(addon, newCacheBuilder(expireAfterAccessMinutes)
+                .maximumWeight(maximumWeightBytes)
+                .weigher((String key, Data data) -> weigh(data))
+                .build());
+    }
+
+    private LocalDataManager(Plugin addon, Cache<String, Data> dataMap) {
         localDataManagerList.add(this);
         this.addon = addon;
         this.core = Mechanics.getInstance();
+        this.dataMap = dataMap;
+        this.ioExecutors = new ExecutorService[IO_THREADS];
+        AtomicInteger threadCount = new AtomicInteger();
+        for (int i = 0; i < ioExecutors.length; i++) {
+            ioExecutors[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Mechanics-LocalData-IO-" + addon.getName() + "-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private static CacheBuilder<Object, Object> newCacheBuilder(long expireAfterAccessMinutes) {
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().recordStats();
+        if (expireAfterAccessMinutes > 0) builder.expireAfterAccess(expireAfterAccessMinutes, TimeUnit.MINUTES);
+        return builder;
+    }
+
+    private static int weigh(Data data) {
+        int weight = data.getId().length() * 2;
+        if (data.getData() != null) weight += data.getData().length() * 2;
+        return Math.max(weight, 1);
+    }
+
+    private static String key(String dataType, String dataFileName) {
+        return dataType + "/" + dataFileName;
     }
 
     public void createDataFolder(){
+        createDataFolder(StorageType.FILES);
+    }
+
+    /**
+     * Creates the data folder and opens it with the given storage engine. When the log storage is selected
+     * and the folder still contains data stored one file per id, that data is migrated to the log once.
+     *
+     * @param storageType The storage engine.
+     */
+    public void createDataFolder(StorageType storageType){
         dir = new File(core.getDataFolder() + "/data/" + addon.getDescription().getName());
         dir.mkdirs();
+        FileDataStorage fileStorage = new FileDataStorage(dir);
+        if (storageType == StorageType.FILES) {
+            storage = fileStorage;
+            return;
+        }
+        storage = new LogDataStorage(dir, addon.getLogger());
+        if (fileStorage.getDataTypes().isEmpty()) return;
+        try {
+            int migrated = LocalDataStorage.migrate(fileStorage, storage);
+            addon.getLogger().info("Migrated " + migrated + " data files to the log storage");
+        } catch (IOException e) {
+            addon.getLogger().log(Level.SEVERE, "Could not migrate the data files to the log storage", e);
+        }
     }
 
     public String[] getAllDataIds(String dataType){
-        File file = new File(dir.getPath() + "/" + dataType + "/");
-        if(!file.exists()) return null;
-        return Arrays.stream(file.listFiles()).filter(f -> f.getName().endsWith(".mechanic")).map(file1 -> file1.getName().replace(".mechanic", "")).toArray(String[]::new);
+        Set<String> ids = new HashSet<>(storage.getIds(dataType));
+        String prefix = key(dataType, "");
+        pendingWrites.forEach((key, data) -> {
+            if (!key.startsWith(prefix)) return;
+            String id = key.substring(prefix.length());
+            if (data.isPresent()) ids.add(id);
+            else ids.remove(id);
+        });
+        if(ids.isEmpty()) return storage.existsDataType(dataType) ? new String[0] : null;
+        return ids.toArray(String[]::new);
     }
 
     public Data[] getAllData(String dataType){
-        File file = new File(dir.getPath() + "/" + dataType + "/");
-        if(!file.exists()) return null;
-        File[] files = Arrays.stream(file.listFiles()).filter(f -> f.getName().endsWith(".mechanic")).toArray(File[]::new);
-        if(files.length == 0) return null;
+        String[] ids = getAllDataIds(dataType);
+        if(ids == null || ids.length == 0) return null;
         ArrayList<Data> datas = new ArrayList<>();
 
-        for(File f : files){
-            String id = f.getName().replace(".mechanic","");
+        for(String id : ids){
             Data localData = getData(id,dataType);
-            datas.add(localData);
+            if(localData != null) datas.add(localData);
         }
         return datas.toArray(Data[]::new);
     }
 
+    /**
+     * Streams every data of the data type. The data is read and deserialized in batches of
+     * {@link #STREAM_BATCH_SIZE} on the common pool while the stream is consumed, so only one batch is kept
+     * in memory at a time. Data that is not cached is not added to the cache.
+     *
+     * @param dataType The data type.
+     * @return A sequential stream of the data, empty if there is none.
+     */
+    public Stream<Data> streamData(String dataType){
+        String[] ids = getAllDataIds(dataType);
+        if(ids == null) return Stream.empty();
+        Iterator<Data> iterator = new Iterator<>() {
+            private int next = 0;
+            private Iterator<Data> batch = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!batch.hasNext() && next < ids.length) {
+                    int end = Math.min(next + STREAM_BATCH_SIZE, ids.length);
+                    batch = Arrays.stream(ids, next, end).parallel()
+                            .map(id -> readData(dataType, id))
+                            .filter(Objects::nonNull)
+                            .toList()
+                            .iterator();
+                    next = end;
+                }
+                return batch.hasNext();
+            }
+
+            @Override
+            public Data next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return batch.next();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliterator(iterator, ids.length, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Runs the consumer for every data of the data type on the calling thread, see {@link #streamData(String)}.
+     *
+     * @param dataType The data type.
+     * @param consumer The consumer.
+     */
+    public void forEachData(String dataType, Consumer<Data> consumer){
+        try (Stream<Data> stream = streamData(dataType)) {
+            stream.forEach(consumer);
+        }
+    }
+
+    private Data readData(String dataType, String dataFileName){
+        Data data = dataMap.getIfPresent(key(dataType, dataFileName));
+        if(data != null) return data;
+        String dataStr = loadDataStr(dataType, dataFileName);
+        if(dataStr == null) return null;
+        try {
+            return (Data) Utils.deserializeObjectBukkit(dataStr);
+        } catch (IOException | ClassNotFoundException e) {
+        }
+        return null;
+    }
+
     public static ArrayList<LocalDataManager> getLocalDataManagerList() {
         return localDataManagerList;
     }
@@ -67,68 +229,197 @@ public class LocalDataManager {
         return dir;
     }
 
+    public LocalDataStorage getStorage() {
+        return storage;
+    }
+
     public Mechanics getCore() {
         return core;
     }
 
     public Data getData(String dataFileName, String dataType){
+        Data data = dataMap.getIfPresent(key(dataType, dataFileName));
+        if(data != null) return data;
         if(!existData(dataType,dataFileName)) return null;
-        if(dataMap.containsKey(dataFileName)) return dataMap.get(dataFileName);
         return loadData(dataType,dataFileName);
     }
     public void removeData(String dataType, String dataFileName){
-        if(dataMap.containsKey(dataFileName)) {
-            dataMap.remove(dataFileName);
-        }
-        File file = new File(dir.getPath() + "/" + dataType + "/" + dataFileName + ".mechanic");
-        if(file.exists()) file.delete();
+        dataMap.invalidate(key(dataType, dataFileName));
+        scheduleWrite(dataType, dataFileName, Optional.empty());
     }
     public void saveData(Data data){
-
-        if(dataMap.containsKey(data.getId())) dataMap.remove(data.getId());
+        dataMap.invalidate(key(data.getDataType(), data.getId()));
 
         String dataStr = null;
         try {
             dataStr = Utils.serializeObjectBukkit(data);
         } catch (IOException e) {
         }
-        if(dataMap.containsKey(data.getId())) dataMap.remove(data.getId());
         saveDataStr(dataStr, data.getDataType(), data.getId());
     }
+
+    /**
+     * Queues the data to be written on the I/O threads. Writes of the same id are applied in order and
+     * repeated saves that were not written yet are coalesced into one, reads see the queued content.
+     */
     public void saveDataStr(String data, String dataType, String dataFileName){
         if(data == null) return;
-        File file = new File(dir.getPath() + "/" + dataType + "/" + dataFileName + ".mechanic");
-        file.getParentFile().mkdirs();
-        if(!file.exists()) {
+        scheduleWrite(dataType, dataFileName, Optional.of(data));
+    }
+
+    private void scheduleWrite(String dataType, String dataFileName, Optional<String> data) {
+        String key = key(dataType, dataFileName);
+        if (closed) {
+            writeAfterShutdown(key, dataType, dataFileName, data);
+            return;
+        }
+        if (pendingWrites.put(key, data) != null) return; // the queued task will pick up the new content
+        ExecutorService executor = ioExecutors[Math.floorMod(key.hashCode(), ioExecutors.length)];
+        Runnable task = () -> {
+            Optional<String> latest;
+            while ((latest = pendingWrites.get(key)) != null) {
+                try {
+                    if (latest.isPresent()) storage.write(dataType, dataFileName, latest.get());
+                    else storage.delete(dataType, dataFileName);
+                } catch (IOException e) {
+                    addon.getLogger().log(Level.SEVERE, "Could not write data " + key, e);
+                }
+                if (pendingWrites.remove(key, latest)) break;
+            }
+            scheduleSync(executor, dataType);
+        };
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    /**
+     * Queues a sync of the data type behind the writes already queued on the executor, so the writes of a
+     * batch are forced to the disk once. Nothing is queued if a sync of the data type is already waiting,
+     * it runs after this write since the write is already done.
+     */
+    private void scheduleSync(ExecutorService executor, String dataType) {
+        if (!unsyncedDataTypes.add(dataType)) return;
+        Runnable sync = () -> {
+            // removed before forcing, a write done meanwhile queues its own sync
+            unsyncedDataTypes.remove(dataType);
             try {
-                file.createNewFile();
+                storage.sync(dataType);
             } catch (IOException e) {
+                addon.getLogger().log(Level.SEVERE, "Could not sync data type " + dataType, e);
             }
+        };
+        try {
+            executor.execute(sync);
+        } catch (RejectedExecutionException e) {
+            sync.run();
         }
-        Writer writer;
+    }
+
+    /**
+     * Writes on the calling thread once the manager is shut down, closing the storage again right after
+     * so the files reopened for the write are not left open.
+     */
+    private synchronized void writeAfterShutdown(String key, String dataType, String dataFileName, Optional<String> data) {
+        if (storage == null) return;
+        addon.getLogger().warning("Data " + key + " was saved after the data manager was shut down, writing it synchronously");
         try {
-            writer = new FileWriter(file);
-            writer.write(data);
-            writer.flush();
-            writer.close();
+            if (data.isPresent()) storage.write(dataType, dataFileName, data.get());
+            else storage.delete(dataType, dataFileName);
+            storage.sync(dataType);
         } catch (IOException e) {
+            addon.getLogger().log(Level.SEVERE, "Could not write data " + key, e);
+        } finally {
+            try {
+                storage.close();
+            } catch (IOException e) {
+                addon.getLogger().log(Level.SEVERE, "Could not close the data storage", e);
+            }
         }
     }
-    public boolean existData(String dataType, String dataFileName){
-        File file = new File(dir.getPath() + "/" + dataType + "/" + dataFileName + ".mechanic");
-        if (this.dataMap.containsKey(dataFileName)) {
-            return true;
-        } else {
-            return file.exists() && this.loadData(dataType, dataFileName) != null;
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Blocks until every save and removal queued so far has been written to disk.
+     */
+    public void flush() {
+        CompletableFuture<?>[] barriers = new CompletableFuture[ioExecutors.length];
+        for (int i = 0; i < ioExecutors.length; i++) {
+            try {
+                barriers[i] = CompletableFuture.runAsync(() -> {}, ioExecutors[i]);
+            } catch (RejectedExecutionException e) {
+                barriers[i] = CompletableFuture.completedFuture(null);
+            }
+        }
+        CompletableFuture.allOf(barriers).join();
+        // the syncs queued by the last writes may still be behind the barriers
+        if (storage == null) return;
+        try {
+            storage.sync();
+        } catch (IOException e) {
+            addon.getLogger().log(Level.SEVERE, "Could not sync the data storage", e);
+        }
+    }
+
+    /**
+     * Flushes the queued writes, stops the I/O threads and closes the storage. Later saves are written
+     * synchronously on the calling thread and the storage is closed again after each of them.
+     */
+    public synchronized void shutdown() {
+        if (closed) return;
+        closed = true;
+        flush();
+        for (ExecutorService executor : ioExecutors) {
+            executor.shutdown();
+        }
+        // let the queued syncs finish before the storage is closed
+        for (ExecutorService executor : ioExecutors) {
+            try {
+                executor.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (storage == null) return;
+        try {
+            storage.close();
+        } catch (IOException e) {
+            addon.getLogger().log(Level.SEVERE, "Could not close the data storage", e);
         }
     }
 
+    /**
+     * Flushes and stops every local data manager, must be called when the server disables the plugins.
+     */
+    public static void shutdownAll() {
+        for (LocalDataManager localDataManager : localDataManagerList) {
+            localDataManager.shutdown();
+        }
+    }
+
+    /**
+     * Checks if the data exists without deserializing it, using the cache, the queued writes and the index of the storage.
+     */
+    public boolean existData(String dataType, String dataFileName){
+        String key = key(dataType, dataFileName);
+        if (dataMap.getIfPresent(key) != null) return true;
+        Optional<String> pending = pendingWrites.get(key);
+        if (pending != null) return pending.isPresent();
+        return storage.exists(dataType, dataFileName);
+    }
+
     public Data loadData(String dataType, String dataFileName){
         String dataStr = loadDataStr(dataType,dataFileName);
+        if(dataStr == null) return null;
         Data data;
         try {
             data = (Data) Utils.deserializeObjectBukkit(dataStr);
-            dataMap.put(data.getId(),data);
+            dataMap.put(key(dataType, data.getId()),data);
             return data;
         } catch (IOException | ClassNotFoundException e) {
         }
@@ -136,33 +427,62 @@ public class LocalDataManager {
     }
 
     public String loadDataStr(String dataType, String dataFileName) {
-        File file = new File(dir.getPath() + "/" + dataType + "/" + dataFileName + ".mechanic");
-
-        if(!file.exists()) {
-            return null;
-        }
-
-        Reader reader;
+        Optional<String> pending = pendingWrites.get(key(dataType, dataFileName));
+        if(pending != null) return pending.orElse(null);
         try {
-            reader = new FileReader(file);
-            try {
-                char[] buffer = new char[(int) file.length()];
-                reader.read(buffer);
-                return new String(buffer);
-            } catch(IOException e) {
-            }
-            finally {
-                try {
-                    reader.close();
-                } catch(IOException e) {
-                }
-            }
-        } catch(IOException e) {
+            return storage.read(dataType, dataFileName);
+        } catch (IOException e) {
+            addon.getLogger().log(Level.SEVERE, "Could not read data " + key(dataType, dataFileName), e);
         }
         return null;
     }
 
+    /**
+     * Drops every cached entry, the data on disk is not affected.
+     */
+    public void invalidateCache() {
+        dataMap.invalidateAll();
+    }
+
+    /**
+     * Retrieves the hit, miss and eviction statistics of the in-memory cache.
+     *
+     * @return The cache statistics.
+     */
+    public CacheStats getCacheStats() {
+        return dataMap.stats();
+    }
+
+    /**
+     * Retrieves a copy of the cached data keyed by id, as the manager did before the cache was keyed by data type.
+     * Entries of different data types with the same id overwrite each other.
+     *
+     * @deprecated Use {@link #getCachedData()}, keyed by {@code dataType/id}.
+     */
+    @Deprecated
     public HashMap<String, Data> getDataMap() {
-        return dataMap;
+        HashMap<String, Data> map = new HashMap<>();
+        for (Data data : dataMap.asMap().values()) {
+            map.put(data.getId(), data);
+        }
+        return map;
+    }
+
+    /**
+     * Retrieves a live view of the cached data, keyed by {@code dataType/id}.
+     */
+    public Map<String, Data> getCachedData() {
+        return dataMap.asMap();
+    }
+
+    public enum StorageType {
+        /**
+         * One file per id at {@code data/<addon>/<dataType>/<id>.mechanic}.
+         */
+        FILES,
+        /**
+         * Append-only segment files per data type, see {@link LogDataStorage}.
+         */
+        LOG
     }
 }
@@ -0,0 +1,106 @@
+package dev.wuason.mechanics.data.local;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Storage engine used by {@link LocalDataManager} to persist the serialized data of an addon.
+ * Implementations must be safe to call from several threads.
+ */
+public interface LocalDataStorage {
+
+    /**
+     * Retrieves every data type that has stored data.
+     *
+     * @return The data types.
+     */
+    Set<String> getDataTypes();
+
+    /**
+     * Retrieves the ids stored for the given data type.
+     *
+     * @param dataType The data type.
+     * @return The stored ids, empty if there are none.
+     */
+    Set<String> getIds(String dataType);
+
+    /**
+     * Checks if data of the data type was ever stored, even if every id was deleted since.
+     *
+     * @param dataType The data type.
+     * @return true if the data type exists.
+     */
+    boolean existsDataType(String dataType);
+
+    /**
+     * Checks if the id is stored without reading its content.
+     *
+     * @param dataType The data type.
+     * @param id       The id of the data.
+     * @return true if the data exists.
+     */
+    boolean exists(String dataType, String id);
+
+    /**
+     * Reads the serialized data.
+     *
+     * @param dataType The data type.
+     * @param id       The id of the data.
+     * @return The serialized data, or null if it does not exist.
+     * @throws IOException If the data cannot be read.
+     */
+    String read(String dataType, String id) throws IOException;
+
+    void write(String dataType, String id, String data) throws IOException;
+
+    void delete(String dataType, String id) throws IOException;
+
+    /**
+     * Forces the written data to the disk.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    default void sync() throws IOException {
+    }
+
+    /**
+     * Forces the written data of a single data type to the disk.
+     *
+     * @param dataType The data type.
+     * @throws IOException If an I/O error occurs.
+     */
+    default void sync(String dataType) throws IOException {
+        sync();
+    }
+
+    default void close() throws IOException {
+    }
+
+    /**
+     * Copies every stored data from one storage to another and deletes it from the source once all
+     * of it has been synced to the target, so an interrupted migration can be run again.
+     *
+     * @param from The storage the data is read from.
+     * @param to   The storage the data is written to.
+     * @return The amount of migrated data.
+     * @throws IOException If an I/O error occurs.
+     */
+    static int migrate(LocalDataStorage from, LocalDataStorage to) throws IOException {
+        int migrated = 0;
+        for (String dataType : from.getDataTypes()) {
+            for (String id : from.getIds(dataType)) {
+                String data = from.read(dataType, id);
+                if (data == null) continue;
+                to.write(dataType, id, data);
+                migrated++;
+            }
+        }
+        to.sync();
+        for (String dataType : from.getDataTypes()) {
+            for (String id : from.getIds(dataType)) {
+                from.delete(dataType, id);
+            }
+        }
+        return migrated;
+    }
+}
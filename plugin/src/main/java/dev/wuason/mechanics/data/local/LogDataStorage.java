@@ -0,0 +1,486 @@
+package dev.wuason.mechanics.data.local;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Stores the data of each data type in append-only segment files at {@code <dir>/<dataType>/<n>.mlog}.
+ * <p>
+ * Every record is {@code crc | keyLength | valueLength | key | value}, where a negative value length marks a
+ * deleted id. The segments are replayed sequentially when a data type is first used to build an in-memory
+ * id to offset index and a background task rewrites the live records of the sealed segments once most of their
+ * content is stale. The compacted segments are listed in a {@code superseded} file until they are deleted, so they
+ * are never replayed again.
+ */
+public class LogDataStorage implements LocalDataStorage {
+
+    public static final String SEGMENT_EXTENSION = ".mlog";
+    public static final String SUPERSEDED_FILE = "superseded";
+    public static final long DEFAULT_SEGMENT_SIZE = 64L * 1024L * 1024L;
+    public static final long DEFAULT_COMPACTION_INTERVAL_MINUTES = 5L;
+    private static final double COMPACTION_GARBAGE_RATIO = 0.5D;
+    private static final int HEADER_SIZE = 12;
+    private static final int TOMBSTONE = -1;
+
+    private final File dir;
+    private final Logger logger;
+    private final long segmentSize;
+    private final Map<String, TypeLog> logs = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService compactionExecutor;
+
+    public LogDataStorage(File dir, Logger logger) {
+        this(dir, logger, DEFAULT_SEGMENT_SIZE, DEFAULT_COMPACTION_INTERVAL_MINUTES);
+    }
+
+    public LogDataStorage(File dir, Logger logger, long segmentSize, long compactionIntervalMinutes) {
+        if (segmentSize <= HEADER_SIZE || segmentSize > Integer.MAX_VALUE) throw new IllegalArgumentException("Invalid segment size: " + segmentSize);
+        this.dir = dir;
+        this.logger = logger;
+        this.segmentSize = segmentSize;
+        this.compactionExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Mechanics-LocalData-Compaction-" + dir.getName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactionExecutor.scheduleWithFixedDelay(this::compactAll, compactionIntervalMinutes, compactionIntervalMinutes, TimeUnit.MINUTES);
+    }
+
+    private TypeLog getLog(String dataType) {
+        return logs.computeIfAbsent(dataType, type -> {
+            try {
+                return new TypeLog(new File(dir, type));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static boolean isSegment(String name) {
+        return name.endsWith(SEGMENT_EXTENSION);
+    }
+
+    @Override
+    public Set<String> getDataTypes() {
+        Set<String> dataTypes = new HashSet<>();
+        File[] folders = dir.listFiles(File::isDirectory);
+        if (folders != null) {
+            for (File folder : folders) {
+                String[] segments = folder.list((d, name) -> isSegment(name));
+                if (segments != null && segments.length > 0) dataTypes.add(folder.getName());
+            }
+        }
+        dataTypes.addAll(logs.keySet());
+        dataTypes.removeIf(dataType -> getIds(dataType).isEmpty());
+        return dataTypes;
+    }
+
+    @Override
+    public boolean existsDataType(String dataType) {
+        // the folder and an empty segment are created as soon as a data type is used, only records count
+        File[] segments = new File(dir, dataType).listFiles((d, name) -> isSegment(name));
+        if (segments == null) return false;
+        for (File segment : segments) {
+            if (segment.length() > 0) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Set<String> getIds(String dataType) {
+        return getLog(dataType).getIds();
+    }
+
+    @Override
+    public boolean exists(String dataType, String id) {
+        return getLog(dataType).exists(id);
+    }
+
+    @Override
+    public String read(String dataType, String id) throws IOException {
+        return getLog(dataType).read(id);
+    }
+
+    @Override
+    public void write(String dataType, String id, String data) throws IOException {
+        getLog(dataType).append(id, data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void delete(String dataType, String id) throws IOException {
+        TypeLog log = getLog(dataType);
+        if (log.exists(id)) log.append(id, null);
+    }
+
+    @Override
+    public void sync() throws IOException {
+        for (TypeLog log : logs.values()) {
+            log.sync();
+        }
+    }
+
+    @Override
+    public void sync(String dataType) throws IOException {
+        TypeLog log = logs.get(dataType);
+        if (log != null) log.sync();
+    }
+
+    @Override
+    public void close() throws IOException {
+        compactionExecutor.shutdownNow();
+        for (TypeLog log : logs.values()) {
+            log.close();
+        }
+        logs.clear();
+    }
+
+    /**
+     * Rewrites the live records of the sealed segments of every data type whose stale content exceeds the
+     * garbage ratio.
+     */
+    public void compactAll() {
+        for (Map.Entry<String, TypeLog> entry : logs.entrySet()) {
+            try {
+                entry.getValue().compact(false);
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Could not compact data type " + entry.getKey(), e);
+            }
+        }
+    }
+
+    /**
+     * Rewrites the live records of every sealed segment of the data type, regardless of the garbage ratio.
+     *
+     * @param dataType The data type.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void compact(String dataType) throws IOException {
+        getLog(dataType).compact(true);
+    }
+
+    public File getDir() {
+        return dir;
+    }
+
+    private static ByteBuffer encode(byte[] key, byte[] value) {
+        int valueLength = value == null ? TOMBSTONE : value.length;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + key.length + Math.max(valueLength, 0));
+        buffer.putInt(0).putInt(key.length).putInt(valueLength).put(key);
+        if (value != null) buffer.put(value);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 4, buffer.capacity() - 4);
+        buffer.putInt(0, (int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    private static boolean checkCrc(ByteBuffer record) {
+        CRC32 crc = new CRC32();
+        ByteBuffer content = record.duplicate();
+        content.position(content.position() + 4);
+        crc.update(content);
+        return record.getInt(record.position()) == (int) crc.getValue();
+    }
+
+    private static final class Segment {
+        private final int id;
+        private final Path path;
+        private final FileChannel channel;
+        private long size;
+        private long liveBytes;
+
+        private Segment(int id, Path path) throws IOException {
+            this.id = id;
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.size = channel.size();
+        }
+
+        // segments are never mapped, a mapped file cannot be deleted on Windows until the mapping is collected
+        private ByteBuffer read(long offset, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) throw new IOException("Unexpected end of segment " + path);
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    private record Location(Segment segment, long offset, int length) {
+    }
+
+    /**
+     * The segments and the index of a single data type. Every access is synchronized on the instance.
+     * <p>
+     * Compaction copies the live records of the sealed segments to a new segment and then commits the ids of the
+     * compacted segments to the superseded file before deleting them, so a compacted segment that could not be
+     * deleted is ignored by the next replay instead of bringing back the ids deleted after it.
+     */
+    private final class TypeLog {
+        private final File folder;
+        private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+        private final Map<String, Location> index = new HashMap<>();
+        // ids of the compacted segments whose files may still exist
+        private final TreeSet<Integer> superseded = new TreeSet<>();
+        private Segment active;
+
+        private TypeLog(File folder) throws IOException {
+            this.folder = folder;
+            Files.createDirectories(folder.toPath());
+            readSuperseded();
+            File[] files = folder.listFiles((d, name) -> isSegment(name));
+            if (files != null) {
+                for (File file : files) {
+                    String name = file.getName();
+                    try {
+                        int id = Integer.parseInt(name.substring(0, name.length() - SEGMENT_EXTENSION.length()));
+                        if (superseded.contains(id)) continue;
+                        segments.put(id, new Segment(id, file.toPath()));
+                    } catch (NumberFormatException e) {
+                        logger.warning("Ignoring unknown segment file " + file);
+                    }
+                }
+            }
+            deleteSuperseded();
+            for (Segment segment : segments.values()) {
+                replay(segment, segment == segments.lastEntry().getValue());
+            }
+            if (segments.isEmpty()) roll();
+            else active = segments.lastEntry().getValue();
+        }
+
+        private void replay(Segment segment, boolean last) throws IOException {
+            if (segment.size == 0) return;
+            if (segment.size > Integer.MAX_VALUE) throw new IOException("Segment too large: " + segment.path);
+            ByteBuffer buffer = segment.read(0, (int) segment.size);
+            int position = 0;
+            while (position + HEADER_SIZE <= segment.size) {
+                int keyLength = buffer.getInt(position + 4);
+                int valueLength = buffer.getInt(position + 8);
+                long length = (long) HEADER_SIZE + keyLength + Math.max(valueLength, 0);
+                if (keyLength < 0 || valueLength < TOMBSTONE || position + length > segment.size) break;
+                ByteBuffer record = buffer.slice(position, (int) length);
+                if (!checkCrc(record)) break;
+                byte[] key = new byte[keyLength];
+                record.get(HEADER_SIZE, key);
+                put(new String(key, StandardCharsets.UTF_8), valueLength == TOMBSTONE ? null : new Location(segment, position, (int) length));
+                position += (int) length;
+            }
+            if (position < segment.size) {
+                if (last) {
+                    // a torn tail left by a crash while appending
+                    logger.warning("Truncating the incomplete records of " + segment.path + " at offset " + position);
+                    segment.channel.truncate(position);
+                    segment.size = position;
+                } else {
+                    // a sealed segment was complete when it was sealed, its bytes are kept for recovery
+                    logger.severe("Corrupted record in " + segment.path + " at offset " + position + ", the later records of this segment are not indexed");
+                }
+            }
+        }
+
+        private void put(String key, Location location) {
+            Location previous = location == null ? index.remove(key) : index.put(key, location);
+            if (previous != null) previous.segment.liveBytes -= previous.length;
+            if (location != null) location.segment.liveBytes += location.length;
+        }
+
+        private int nextSegmentId() {
+            int last = segments.isEmpty() ? 0 : segments.lastKey();
+            if (!superseded.isEmpty()) last = Math.max(last, superseded.last());
+            return last + 1;
+        }
+
+        private Segment newSegment() throws IOException {
+            int id = nextSegmentId();
+            Segment segment = new Segment(id, folder.toPath().resolve(String.format("%08d", id) + SEGMENT_EXTENSION));
+            segments.put(id, segment);
+            return segment;
+        }
+
+        private void roll() throws IOException {
+            if (active != null) active.channel.force(false);
+            active = newSegment();
+        }
+
+        //****************** SUPERSEDED SEGMENTS ******************//
+
+        private Path getSupersededPath() {
+            return folder.toPath().resolve(SUPERSEDED_FILE);
+        }
+
+        private void readSuperseded() throws IOException {
+            Path path = getSupersededPath();
+            if (!Files.exists(path)) return;
+            for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                line = line.trim();
+                if (line.isEmpty()) continue;
+                try {
+                    superseded.add(Integer.parseInt(line));
+                } catch (NumberFormatException e) {
+                    logger.warning("Ignoring invalid line " + line + " of " + path);
+                }
+            }
+        }
+
+        /**
+         * Replaces the superseded file atomically with the current ids, or deletes it if there are none.
+         */
+        private void writeSuperseded() throws IOException {
+            Path path = getSupersededPath();
+            if (superseded.isEmpty()) {
+                Files.deleteIfExists(path);
+                return;
+            }
+            Path temp = folder.toPath().resolve(SUPERSEDED_FILE + ".tmp");
+            StringBuilder content = new StringBuilder();
+            for (int id : superseded) content.append(id).append('\n');
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining()) channel.write(buffer);
+                channel.force(true);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        /**
+         * Deletes the files of the superseded segments, the ids whose file could not be deleted are kept.
+         */
+        private void deleteSuperseded() {
+            if (superseded.isEmpty()) return;
+            boolean changed = false;
+            for (Iterator<Integer> iterator = superseded.iterator(); iterator.hasNext(); ) {
+                Path path = folder.toPath().resolve(String.format("%08d", iterator.next()) + SEGMENT_EXTENSION);
+                try {
+                    Files.deleteIfExists(path);
+                    iterator.remove();
+                    changed = true;
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "Could not delete compacted segment " + path + ", it is ignored until it can be deleted", e);
+                }
+            }
+            if (!changed) return;
+            try {
+                writeSuperseded();
+            } catch (IOException e) {
+                // the ids stay in the file, they are deleted again with the next compaction or replay
+                logger.log(Level.WARNING, "Could not update the superseded segments of " + folder, e);
+            }
+        }
+
+        //****************** ACCESS ******************//
+
+        private synchronized Set<String> getIds() {
+            return Set.copyOf(index.keySet());
+        }
+
+        private synchronized boolean exists(String id) {
+            return index.containsKey(id);
+        }
+
+        private synchronized String read(String id) throws IOException {
+            Location location = index.get(id);
+            if (location == null) return null;
+            ByteBuffer record = location.segment.read(location.offset, location.length);
+            if (!checkCrc(record)) throw new IOException("Corrupted record " + id + " in " + location.segment.path);
+            int keyLength = record.getInt(record.position() + 4);
+            int valueLength = record.getInt(record.position() + 8);
+            byte[] value = new byte[valueLength];
+            record.get(record.position() + HEADER_SIZE + keyLength, value);
+            return new String(value, StandardCharsets.UTF_8);
+        }
+
+        private synchronized void append(String id, byte[] value) throws IOException {
+            ByteBuffer record = encode(id.getBytes(StandardCharsets.UTF_8), value);
+            int length = record.remaining();
+            if (active.size > 0 && active.size + length > segmentSize) roll();
+            long offset = active.size;
+            writeRecord(active, record, offset);
+            active.size += length;
+            put(id, value == null ? null : new Location(active, offset, length));
+        }
+
+        private void writeRecord(Segment segment, ByteBuffer record, long offset) throws IOException {
+            while (record.hasRemaining()) {
+                segment.channel.write(record, offset + record.position());
+            }
+        }
+
+        private synchronized void sync() throws IOException {
+            active.channel.force(false);
+        }
+
+        /**
+         * Copies the live records of the sealed segments to a new segment placed after the active one, seals the
+         * active segment behind it, and commits the compacted segments as superseded before deleting them.
+         */
+        private synchronized void compact(boolean force) throws IOException {
+            List<Segment> sealed = new ArrayList<>(segments.headMap(active.id).values());
+            if (sealed.isEmpty()) return;
+            long total = 0;
+            long live = 0;
+            for (Segment segment : sealed) {
+                total += segment.size;
+                live += segment.liveBytes;
+            }
+            if (!force && (total == 0 || (double) (total - live) / total < COMPACTION_GARBAGE_RATIO)) return;
+            Set<Segment> compacted = new HashSet<>(sealed);
+            List<Map.Entry<String, Location>> moved = new ArrayList<>();
+            for (Map.Entry<String, Location> entry : index.entrySet()) {
+                if (compacted.contains(entry.getValue().segment)) moved.add(Map.entry(entry.getKey(), entry.getValue()));
+            }
+            if (!moved.isEmpty()) {
+                // the moved ids have no record in the active segment, so the copies can follow it, and the
+                // later writes go to a new active segment after the copies
+                Segment output = newSegment();
+                try {
+                    for (Map.Entry<String, Location> entry : moved) {
+                        Location location = entry.getValue();
+                        ByteBuffer record = location.segment.read(location.offset, location.length);
+                        if (!checkCrc(record)) throw new IOException("Corrupted record " + entry.getKey() + " in " + location.segment.path);
+                        long offset = output.size;
+                        writeRecord(output, record, offset);
+                        output.size += location.length;
+                        put(entry.getKey(), new Location(output, offset, location.length));
+                    }
+                    output.channel.force(false);
+                } finally {
+                    // the output is sealed even if the copy failed, the compacted segments are only superseded below
+                    roll();
+                }
+            }
+            for (Segment segment : sealed) superseded.add(segment.id);
+            writeSuperseded();
+            for (Segment segment : sealed) {
+                segments.remove(segment.id);
+                segment.channel.close();
+            }
+            deleteSuperseded();
+        }
+
+        private synchronized void close() throws IOException {
+            for (Segment segment : segments.values()) {
+                if (segment == active) segment.channel.force(false);
+                segment.channel.close();
+            }
+            segments.clear();
+            index.clear();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package dev.wuason.mechanics.data.mysql;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the health of the database connection of a {@link SqlManager}.
+ * <p>
+ * After {@code failureThreshold} consecutive failures the breaker opens and calls fail fast. Reconnection
+ * attempts are then spaced with an exponential backoff with jitter, a successful reconnection half opens the
+ * breaker and the next successful call closes it again.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+
+    private volatile State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private int reconnectAttempts = 0;
+    private long nextAttemptAt = 0L;
+
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong rejectedCalls = new AtomicLong();
+    private final AtomicLong totalReconnectAttempts = new AtomicLong();
+    private final AtomicLong timesOpened = new AtomicLong();
+
+    public CircuitBreaker(int failureThreshold, long baseDelayMillis, long maxDelayMillis) {
+        this.failureThreshold = failureThreshold;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    /**
+     * Checks if a call can reach the database, counting it as rejected when it cannot.
+     */
+    public boolean allowRequest() {
+        if (state != State.OPEN) return true;
+        rejectedCalls.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Records a successful call.
+     *
+     * @return The previous state if it changed, or null.
+     */
+    public synchronized State recordSuccess() {
+        consecutiveFailures = 0;
+        reconnectAttempts = 0;
+        return transition(State.CLOSED);
+    }
+
+    /**
+     * Records a failed call or a failed validation of the connection.
+     *
+     * @return The previous state if it changed, or null.
+     */
+    public synchronized State recordFailure() {
+        failures.incrementAndGet();
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            scheduleNextAttempt();
+            return transition(State.OPEN);
+        }
+        return null;
+    }
+
+    /**
+     * Opens the breaker immediately, for example when the validation of the connection fails.
+     *
+     * @return The previous state if it changed, or null.
+     */
+    public synchronized State trip() {
+        failures.incrementAndGet();
+        consecutiveFailures = failureThreshold;
+        scheduleNextAttempt();
+        return transition(State.OPEN);
+    }
+
+    /**
+     * Checks if the backoff delay has elapsed and a reconnection should be attempted now.
+     */
+    public synchronized boolean shouldAttemptReconnect() {
+        return state == State.OPEN && System.currentTimeMillis() >= nextAttemptAt;
+    }
+
+    /**
+     * Records the result of a reconnection attempt.
+     *
+     * @return The previous state if it changed, or null.
+     */
+    public synchronized State recordReconnect(boolean success) {
+        totalReconnectAttempts.incrementAndGet();
+        if (success) {
+            consecutiveFailures = 0;
+            return transition(State.HALF_OPEN);
+        }
+        reconnectAttempts++;
+        scheduleNextAttempt();
+        return null;
+    }
+
+    private void scheduleNextAttempt() {
+        long delay = Math.min(maxDelayMillis, baseDelayMillis << Math.min(reconnectAttempts, 20));
+        // full jitter in [delay / 2, delay] so several servers do not reconnect at the same time
+        long jittered = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        nextAttemptAt = System.currentTimeMillis() + jittered;
+    }
+
+    private State transition(State newState) {
+        State previous = state;
+        if (previous == newState) return null;
+        state = newState;
+        if (newState == State.OPEN) timesOpened.incrementAndGet();
+        return previous;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public synchronized long getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    public long getRejectedCalls() {
+        return rejectedCalls.get();
+    }
+
+    public long getReconnectAttempts() {
+        return totalReconnectAttempts.get();
+    }
+
+    public long getTimesOpened() {
+        return timesOpened.get();
+    }
+}
@@ -0,0 +1,26 @@
+package dev.wuason.mechanics.data.mysql;
+
+import dev.wuason.mechanics.data.Data;
+
+import java.util.function.Function;
+
+/**
+ * A secondary column of a {@link TableDefinition} whose value is projected out of the {@link Data}
+ * every time it is saved, and that has its own index so it can be searched without a table scan.
+ */
+public class IndexedColumn extends Column {
+    private final Function<Data, ?> extractor;
+
+    public IndexedColumn(String name, String type, Function<Data, ?> extractor) {
+        super(name, type);
+        this.extractor = extractor;
+    }
+
+    public Object extract(Data data) {
+        return extractor.apply(data);
+    }
+
+    public String getIndexName() {
+        return "idx_" + getName();
+    }
+}
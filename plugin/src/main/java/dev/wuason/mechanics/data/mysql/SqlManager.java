@@ -1,6 +1,7 @@
 package dev.wuason.mechanics.data.mysql;
 
 import dev.wuason.mechanics.data.Data;
+import dev.wuason.mechanics.data.mysql.events.CircuitStateChangeEvent;
 import dev.wuason.mechanics.mechanics.MechanicAddon;
 import dev.wuason.mechanics.utils.AdventureUtils;
 import dev.wuason.mechanics.utils.Utils;
@@ -8,15 +9,17 @@ import org.bukkit.Bukkit;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.scheduler.BukkitTask;
 
+import java.io.File;
 import java.io.IOException;
 import java.sql.*;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 public class SqlManager {
 
-    private Connection connection;
+    private volatile Connection connection;
     private static ArrayList<SqlManager> dataManagers = new ArrayList<>();
 
     private MechanicAddon addon;
@@ -28,7 +31,18 @@ public class SqlManager {
     private String driver;
     final public static String DATA_NAME_COLUMN = "data";
     final public static String DATA_ID_NAME_COLUMN = "data_id";
+    public static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    public static final int VALIDATION_INTERVAL_SECONDS = 5;
+    public static final int SPOOL_MAX_ENTRIES = 100000;
     public BukkitTask bukkitTask;
+    private final Map<String, TableDefinition> tables = new ConcurrentHashMap<>();
+    private final Set<String> migratedTables = ConcurrentHashMap.newKeySet();
+    // tables whose primary key could not be added, they are saved with an update or insert instead of an upsert
+    private final Set<String> tablesWithoutPrimaryKey = ConcurrentHashMap.newKeySet();
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker(3, 1000L, 60000L);
+    private final SqlSpool spool;
+    private final List<Consumer<CircuitStateChangeEvent>> circuitStateChangeListeners = new CopyOnWriteArrayList<>();
+    private int ticksSinceValidation = 0;
 
     public SqlManager(MechanicAddon addon, String host, int port, String database, String user, String password, String driver) {
         this.addon = addon;
@@ -38,67 +52,145 @@ public class SqlManager {
         this.user = user;
         this.password = password;
         this.driver = driver;
-        connectToMySQL();
-        bukkitTask = Bukkit.getScheduler().runTaskTimerAsynchronously((Plugin) addon,() ->{
-
-            if(!isDatabaseConnected()){
-                handleDisconnection();
-                bukkitTask.cancel();
-            }
-
-        },20L,20L * 5L);
-
-        dataManagers.add(this);
-        if (!isDatabaseConnected()) {
-            handleDisconnection();
-        }
-    }
-
-    private void connectToMySQL() {
-        String url = "jdbc:" + driver + "://" + host + ":" + port + "/" + database + "?createDatabaseIfNotExist=true";
-
+        this.spool = new SqlSpool(new File(((Plugin) addon).getDataFolder(), "sql-spool.log"), SPOOL_MAX_ENTRIES);
         try {
-            connection = DriverManager.getConnection(url, user, password);
+            connection = openConnection();
         } catch (SQLException e) {
             e.printStackTrace();
             AdventureUtils.sendMessagePluginConsole(addon, "<red> Cannot establish a connection to the database. Plugin is being disabled.");
             Bukkit.getPluginManager().disablePlugin((Plugin) addon);
         }
+        bukkitTask = Bukkit.getScheduler().runTaskTimerAsynchronously((Plugin) addon, this::checkHealth, 20L, 20L);
+
+        dataManagers.add(this);
+    }
+
+    private Connection openConnection() throws SQLException {
+        String url = "jdbc:" + driver + "://" + host + ":" + port + "/" + database + "?createDatabaseIfNotExist=true";
+        return DriverManager.getConnection(url, user, password);
+    }
+
+    /**
+     * Returns the connection for a call, failing fast without touching the network while the circuit is open.
+     */
+    private Connection connection() throws SQLException {
+        if (!circuitBreaker.allowRequest()) throw new CircuitOpenException();
+        return connection;
     }
 
     public boolean isDatabaseConnected() {
         try {
-            return !connection.isClosed();
+            Connection current = connection;
+            return current != null && current.isValid(VALIDATION_TIMEOUT_SECONDS);
         } catch (SQLException e) {
-            e.printStackTrace();
             return false;
         }
     }
 
-    public void reconnectToDatabase() {
-        try {
-            if (connection.isClosed()) {
-                connectToMySQL();
+    /**
+     * Runs every second on an async thread: validates the connection every {@link #VALIDATION_INTERVAL_SECONDS}
+     * seconds while it is healthy, reconnects with backoff while the circuit is open and replays the spool.
+     */
+    private synchronized void checkHealth() {
+        if (circuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+            if (!circuitBreaker.shouldAttemptReconnect()) return;
+            boolean reconnected = reconnect();
+            fireStateChange(circuitBreaker.recordReconnect(reconnected));
+            if (!reconnected) {
+                AdventureUtils.sendMessagePluginConsole(addon, "<red> Cannot reconnect to the database, next attempt in " + Math.max(0L, (circuitBreaker.getNextAttemptAt() - System.currentTimeMillis()) / 1000L) + "s");
+                return;
+            }
+            ticksSinceValidation = VALIDATION_INTERVAL_SECONDS;
+        }
+        if (++ticksSinceValidation >= VALIDATION_INTERVAL_SECONDS || circuitBreaker.getState() == CircuitBreaker.State.HALF_OPEN) {
+            ticksSinceValidation = 0;
+            if (!isDatabaseConnected()) {
+                handleDisconnection();
+                return;
             }
+            fireStateChange(circuitBreaker.recordSuccess());
+        }
+        if (spool.size() > 0 && circuitBreaker.getState() == CircuitBreaker.State.CLOSED) replaySpool();
+    }
+
+    private boolean reconnect() {
+        Connection previous = connection;
+        try {
+            if (previous != null) previous.close();
+        } catch (SQLException ignored) {
+        }
+        try {
+            connection = openConnection();
+            return true;
         } catch (SQLException e) {
-            e.printStackTrace();
-            AdventureUtils.sendMessagePluginConsole(addon, "<red> Cannot reconnect to the database. Plugin is being disabled.");
-            Bukkit.getPluginManager().disablePlugin((Plugin) addon);
+            return false;
         }
     }
 
+    public void reconnectToDatabase() {
+        if (!isDatabaseConnected()) fireStateChange(circuitBreaker.recordReconnect(reconnect()));
+    }
+
+    /**
+     * Opens the circuit, calls fail fast and writes are spooled until the health check reconnects.
+     */
     public void handleDisconnection() {
-        new Thread(() -> {
-            while (!isDatabaseConnected()) {
-                AdventureUtils.sendMessagePluginConsole(addon, "<red> Attempting to reconnect to the database...");
-                reconnectToDatabase();
-                try {
-                    Thread.sleep(10000); // Retry every 10 seconds
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
+        fireStateChange(circuitBreaker.trip());
+    }
+
+    private void fireStateChange(CircuitBreaker.State previous) {
+        if (previous == null) return;
+        CircuitBreaker.State state = circuitBreaker.getState();
+        switch (state) {
+            case OPEN -> AdventureUtils.sendMessagePluginConsole(addon, "<red> Lost the connection to the database, writes are spooled until it recovers.");
+            case CLOSED -> AdventureUtils.sendMessagePluginConsole(addon, "<green> The connection to the database is healthy again.");
+            default -> {
             }
-        }).start();
+        }
+        CircuitStateChangeEvent event = new CircuitStateChangeEvent(this, previous, state);
+        circuitStateChangeListeners.forEach(listener -> listener.accept(event));
+    }
+
+    /**
+     * Records a failed call.
+     *
+     * @return true if the failure was caused by the connection and has been handled by the circuit breaker.
+     */
+    private boolean recordFailure(SQLException e) {
+        if (e instanceof CircuitOpenException) return true;
+        boolean connectionError = e instanceof SQLTransientConnectionException
+                || e instanceof SQLNonTransientConnectionException
+                || e instanceof SQLRecoverableException
+                || (e.getSQLState() != null && e.getSQLState().startsWith("08"));
+        if (!connectionError) return false;
+        fireStateChange(circuitBreaker.recordFailure());
+        return true;
+    }
+
+    private void onFailure(SQLException e) {
+        if (!recordFailure(e)) e.printStackTrace();
+    }
+
+    public void addCircuitStateChangeListener(Consumer<CircuitStateChangeEvent> listener) {
+        circuitStateChangeListeners.add(listener);
+    }
+
+    public void removeCircuitStateChangeListener(Consumer<CircuitStateChangeEvent> listener) {
+        circuitStateChangeListeners.remove(listener);
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public SqlSpool getSpool() {
+        return spool;
+    }
+
+    private static class CircuitOpenException extends SQLTransientConnectionException {
+        private CircuitOpenException() {
+            super("The database circuit is open");
+        }
     }
 
     public void createCustomTable(String tableName, List<Column> columns) {
@@ -112,43 +204,44 @@ public class SqlManager {
         }
         createTableSQL.append(");");
 
-        try (Statement stmt = connection.createStatement()) {
+        try (Statement stmt = connection().createStatement()) {
             stmt.execute(createTableSQL.toString());
         } catch (SQLException e) {
-            e.printStackTrace();
+            onFailure(e);
         }
     }
 
     public void insertData(String tableName, String columnName, String value) {
         String insertSQL = "INSERT INTO " + tableName + " (" + columnName + ") VALUES (?)";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(insertSQL)) {
+        try (PreparedStatement pstmt = connection().prepareStatement(insertSQL)) {
             pstmt.setString(1, value);
             pstmt.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            onFailure(e);
         }
     }
 
     public void updateData(String tableName, String columnName, String value, String conditionColumn, String conditionValue) {
         String updateSQL = "UPDATE " + tableName + " SET " + columnName + " = ? WHERE " + conditionColumn + " = ?";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(updateSQL)) {
+        try (PreparedStatement pstmt = connection().prepareStatement(updateSQL)) {
             pstmt.setString(1, value);
             pstmt.setString(2, conditionValue);
             pstmt.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            onFailure(e);
         }
     }
 
     public void deleteData(String tableName, String conditionColumn, String value) {
         String deleteSQL = "DELETE FROM " + tableName + " WHERE " + conditionColumn + " = ?";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(deleteSQL)) {
+        try (PreparedStatement pstmt = connection().prepareStatement(deleteSQL)) {
             pstmt.setString(1, value);
             pstmt.executeUpdate();
         } catch (SQLException e) {
+            onFailure(e);
         }
     }
 
@@ -156,13 +249,14 @@ public class SqlManager {
         String selectSQL = "SELECT " + columnName + " FROM " + tableName + " WHERE " + conditionColumn + " = ?";
         String result = null;
 
-        try (PreparedStatement pstmt = connection.prepareStatement(selectSQL)) {
+        try (PreparedStatement pstmt = connection().prepareStatement(selectSQL)) {
             pstmt.setString(1, conditionValue);
             ResultSet rs = pstmt.executeQuery();
             if (rs.next()) {
                 result = rs.getString(columnName);
             }
         } catch (SQLException e) {
+            onFailure(e);
         }
 
         return result;
@@ -172,20 +266,20 @@ public class SqlManager {
         String selectSQL = "SELECT " + columnName + " FROM " + tableName;
         List<String> results = new ArrayList<>();
 
-        try (Statement stmt = connection.createStatement()) {
+        try (Statement stmt = connection().createStatement()) {
             ResultSet rs = stmt.executeQuery(selectSQL);
             while (rs.next()) {
                 results.add(rs.getString(columnName));
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            onFailure(e);
         }
 
         return results;
     }
 
     public Data[] getAllData(String dataType){
-        return getAllData(dataType,DATA_ID_NAME_COLUMN).stream().map(s -> getData(dataType, s)).toArray(Data[]::new);
+        return searchData(dataType, Collections.emptyList());
     }
 
     public List<String> searchData(String tableName, String columnName, List<Condition> conditions) {
@@ -199,7 +293,7 @@ public class SqlManager {
         }
         List<String> results = new ArrayList<>();
 
-        try (PreparedStatement pstmt = connection.prepareStatement(selectSQL.toString())) {
+        try (PreparedStatement pstmt = connection().prepareStatement(selectSQL.toString())) {
             for (int i = 0; i < conditions.size(); i++) {
                 pstmt.setString(i + 1, conditions.get(i).getValue());
             }
@@ -208,7 +302,7 @@ public class SqlManager {
                 results.add(rs.getString(columnName));
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            onFailure(e);
         }
 
         return results;
@@ -220,11 +314,11 @@ public class SqlManager {
             String sql = "DROP TABLE IF EXISTS " + tableName;
 
             // Ejecutamos la sentencia SQL
-            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            try (PreparedStatement statement = connection().prepareStatement(sql)) {
                 statement.executeUpdate();
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            onFailure(e);
         }
     }
 
@@ -254,13 +348,13 @@ public class SqlManager {
             }
         }
 
-        try (PreparedStatement pstmt = connection.prepareStatement(insertSQL.toString())) {
+        try (PreparedStatement pstmt = connection().prepareStatement(insertSQL.toString())) {
             for(int i = 0; i < values.size(); i++) {
                 pstmt.setString(i + 1, values.get(i));
             }
             pstmt.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            onFailure(e);
         }
     }
 
@@ -288,7 +382,7 @@ public class SqlManager {
             }
         }
 
-        try (PreparedStatement pstmt = connection.prepareStatement(updateSQL.toString())) {
+        try (PreparedStatement pstmt = connection().prepareStatement(updateSQL.toString())) {
             int index = 1;
             for(String value : newValues) {
                 pstmt.setString(index++, value);
@@ -298,7 +392,7 @@ public class SqlManager {
             }
             pstmt.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            onFailure(e);
         }
     }
 
@@ -312,13 +406,13 @@ public class SqlManager {
             }
         }
 
-        try (PreparedStatement pstmt = connection.prepareStatement(deleteSQL.toString())) {
+        try (PreparedStatement pstmt = connection().prepareStatement(deleteSQL.toString())) {
             for(int i = 0; i < conditions.size(); i++) {
                 pstmt.setString(i + 1, conditions.get(i).getValue());
             }
             pstmt.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            onFailure(e);
         }
     }
 
@@ -332,14 +426,14 @@ public class SqlManager {
             }
         }
 
-        try (PreparedStatement pstmt = connection.prepareStatement(selectSQL.toString())) {
+        try (PreparedStatement pstmt = connection().prepareStatement(selectSQL.toString())) {
             for (int i = 0; i < conditions.size(); i++) {
                 pstmt.setString(i + 1, conditions.get(i).getValue());
             }
             ResultSet rs = pstmt.executeQuery();
             return rs.next(); // Si hay al menos una fila, el dato existe
         } catch (SQLException e) {
-            e.printStackTrace();
+            onFailure(e);
         }
 
         return false;
@@ -363,38 +457,185 @@ public class SqlManager {
         return dataManagers;
     }
 
+    /**
+     * Registers the schema used to store the data type, creating the table if it does not exist. Existing
+     * tables are migrated idempotently: missing indexed columns, the primary key and the indexes are added.
+     * Indexed columns of rows that already existed are filled the next time each data is saved.
+     *
+     * @param tableDefinition The table definition, its name is the data type.
+     */
+    public void registerTable(TableDefinition tableDefinition) {
+        tables.put(tableDefinition.getName(), tableDefinition);
+        migratedTables.remove(tableDefinition.getName());
+        try {
+            getTable(tableDefinition.getName());
+        } catch (SQLException e) {
+            onFailure(e);
+        }
+    }
+
+    public TableDefinition getTableDefinition(String dataType) {
+        return tables.get(dataType);
+    }
+
+    /**
+     * Retrieves the definition of the data type, migrating its table the first time it is used.
+     */
+    private TableDefinition getTable(String dataType) throws SQLException {
+        TableDefinition tableDefinition = tables.computeIfAbsent(dataType, TableDefinition::defaultDefinition);
+        if (migratedTables.contains(dataType)) return tableDefinition;
+        migrateTable(tableDefinition);
+        migratedTables.add(dataType);
+        return tableDefinition;
+    }
+
+    private void migrateTable(TableDefinition tableDefinition) throws SQLException {
+        String table = tableDefinition.getName();
+        try (Statement stmt = connection().createStatement()) {
+            stmt.execute(tableDefinition.createTableSql());
+
+            DatabaseMetaData metaData = connection().getMetaData();
+            String catalog = connection.getCatalog();
+
+            Set<String> columns = new HashSet<>();
+            try (ResultSet rs = metaData.getColumns(catalog, null, table, null)) {
+                while (rs.next()) columns.add(rs.getString("COLUMN_NAME").toLowerCase(Locale.ENGLISH));
+            }
+            for (IndexedColumn column : tableDefinition.getIndexedColumns()) {
+                if (columns.contains(column.getName().toLowerCase(Locale.ENGLISH))) continue;
+                stmt.execute("ALTER TABLE " + table + " ADD COLUMN " + column.getName() + " " + column.getType());
+            }
+
+            boolean hasPrimaryKey;
+            try (ResultSet rs = metaData.getPrimaryKeys(catalog, null, table)) {
+                hasPrimaryKey = rs.next();
+            }
+            tablesWithoutPrimaryKey.remove(table);
+            if (!hasPrimaryKey) {
+                try {
+                    stmt.execute("ALTER TABLE " + table + " MODIFY " + DATA_ID_NAME_COLUMN + " " + TableDefinition.ID_TYPE + " NOT NULL, ADD PRIMARY KEY (" + DATA_ID_NAME_COLUMN + ")");
+                } catch (SQLException e) {
+                    tablesWithoutPrimaryKey.add(table);
+                    AdventureUtils.sendMessagePluginConsole(addon, "<red> Cannot add the primary key to the table " + table + ", check for duplicated " + DATA_ID_NAME_COLUMN + " values: " + e.getMessage());
+                    AdventureUtils.sendMessagePluginConsole(addon, "<red> The table " + table + " is saved with an update or insert until the duplicates are removed and the server is restarted.");
+                }
+            }
+
+            Set<String> indexes = new HashSet<>();
+            try (ResultSet rs = metaData.getIndexInfo(catalog, null, table, false, false)) {
+                while (rs.next()) {
+                    String indexName = rs.getString("INDEX_NAME");
+                    if (indexName != null) indexes.add(indexName.toLowerCase(Locale.ENGLISH));
+                }
+            }
+            for (IndexedColumn column : tableDefinition.getIndexedColumns()) {
+                if (indexes.contains(column.getIndexName().toLowerCase(Locale.ENGLISH))) continue;
+                stmt.execute("CREATE INDEX " + column.getIndexName() + " ON " + table + " (" + column.getName() + ")");
+            }
+        }
+    }
+
     public Data getData(String dataType, String dataID){
+        String dataStr = getDataStr(dataType, dataID);
+        if (dataStr == null) return null;
         try {
-            return (Data) Utils.deserializeObjectBukkit(getData(dataType,DATA_NAME_COLUMN,DATA_ID_NAME_COLUMN,dataID));
+            return (Data) Utils.deserializeObjectBukkit(dataStr);
         } catch (IOException | ClassNotFoundException e) {
         }
         return null;
     }
+    /**
+     * Retrieves the serialized data, the writes still in the spool take precedence over the database.
+     */
     public String getDataStr(String dataType, String dataID){
-        return getData(dataType,DATA_NAME_COLUMN,DATA_ID_NAME_COLUMN,dataID);
+        SqlSpool.Entry spooled = spool.getLatest(dataType, dataID);
+        if (spooled != null) return spooled.operation() == SqlSpool.Operation.SAVE ? spooled.data() : null;
+        String selectSQL = "SELECT " + DATA_NAME_COLUMN + " FROM " + dataType + " WHERE " + DATA_ID_NAME_COLUMN + " = ?";
+        try {
+            TableDefinition tableDefinition = getTable(dataType);
+            try (PreparedStatement pstmt = connection().prepareStatement(selectSQL)) {
+                pstmt.setString(1, dataID);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) return readDataColumn(tableDefinition, rs);
+                }
+            }
+        } catch (SQLException e) {
+            onFailure(e);
+        }
+        return null;
+    }
+
+    private static String readDataColumn(TableDefinition tableDefinition, ResultSet rs) throws SQLException {
+        if (!tableDefinition.isBinary()) return rs.getString(DATA_NAME_COLUMN);
+        byte[] bytes = rs.getBytes(DATA_NAME_COLUMN);
+        return bytes == null ? null : Base64.getEncoder().encodeToString(bytes);
+    }
+
+    /**
+     * Retrieves the data matching every condition, the conditions can use the indexed columns of the registered table.
+     * The writes still in the spool are not reflected until they are replayed, see {@link SqlSpool#size()}.
+     *
+     * @param dataType   The data type.
+     * @param conditions The conditions.
+     * @return The matching data.
+     */
+    public Data[] searchData(String dataType, List<Condition> conditions){
+        StringBuilder selectSQL = new StringBuilder("SELECT " + DATA_NAME_COLUMN + " FROM " + dataType);
+        if (!conditions.isEmpty()) selectSQL.append(" WHERE ");
+        for (int i = 0; i < conditions.size(); i++) {
+            Condition condition = conditions.get(i);
+            selectSQL.append(condition.getColumn()).append(" ").append(condition.getOperator()).append(" ?");
+            if (i < conditions.size() - 1) {
+                selectSQL.append(" AND ");
+            }
+        }
+        List<Data> results = new ArrayList<>();
+        try {
+            TableDefinition tableDefinition = getTable(dataType);
+            try (PreparedStatement pstmt = connection().prepareStatement(selectSQL.toString())) {
+                for (int i = 0; i < conditions.size(); i++) {
+                    pstmt.setString(i + 1, conditions.get(i).getValue());
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        try {
+                            results.add((Data) Utils.deserializeObjectBukkit(readDataColumn(tableDefinition, rs)));
+                        } catch (IOException | ClassNotFoundException e) {
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            onFailure(e);
+        }
+        return results.toArray(Data[]::new);
     }
 
     public boolean existData(String dataType, String dataID){
-        return dataExists(dataType, Collections.singletonList(new Condition(DATA_ID_NAME_COLUMN,"=",dataID)));
+        SqlSpool.Entry spooled = spool.getLatest(dataType, dataID);
+        if (spooled != null) return spooled.operation() == SqlSpool.Operation.SAVE;
+        String selectSQL = "SELECT 1 FROM " + dataType + " WHERE " + DATA_ID_NAME_COLUMN + " = ? LIMIT 1";
+        try {
+            getTable(dataType);
+            try (PreparedStatement pstmt = connection().prepareStatement(selectSQL)) {
+                pstmt.setString(1, dataID);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return rs.next();
+                }
+            }
+        } catch (SQLException e) {
+            onFailure(e);
+        }
+        return false;
     }
     public void removeDataStr(String dataType, String dataID){
-        deleteData(dataType,DATA_ID_NAME_COLUMN,dataID);
+        write(new SqlSpool.Entry(SqlSpool.Operation.REMOVE, dataType, dataID, null), null);
     }
     public void removeData(Data data){
-        deleteData(data.getDataType(),DATA_ID_NAME_COLUMN,data.getId());
+        removeDataStr(data.getDataType(), data.getId());
     }
     public void saveDataStr(String dataType, String dataID, String data){
-        if(existData(dataType,dataID)){
-            updateData(dataType,DATA_NAME_COLUMN,data,DATA_ID_NAME_COLUMN,dataID);
-            return;
-        }
-        List<Column> columns = new ArrayList<>();
-        columns.add(new Column(DATA_ID_NAME_COLUMN,"VARCHAR(255)"));
-        columns.add(new Column(DATA_NAME_COLUMN,"TEXT"));
-        List<String> values = new ArrayList<>();
-        values.add(dataID);
-        values.add(data);
-        insertDataMultiColumn(dataType,columns,values);
+        write(new SqlSpool.Entry(SqlSpool.Operation.SAVE, dataType, dataID, data), null);
     }
     public void saveData(Data data){
         String dataStr = null;
@@ -403,16 +644,120 @@ public class SqlManager {
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
-        saveDataStr(data.getDataType(),data.getId(),dataStr);
+        write(new SqlSpool.Entry(SqlSpool.Operation.SAVE, data.getDataType(), data.getId(), dataStr), data);
+    }
+
+    /**
+     * Applies a write, or appends it to the spool when the database is unreachable. While the spool has
+     * entries new writes are spooled too, so they are replayed after the older ones.
+     */
+    private void write(SqlSpool.Entry entry, Data data) {
+        if (spool.size() == 0) {
+            try {
+                apply(entry, data);
+                return;
+            } catch (SQLException e) {
+                if (!recordFailure(e)) {
+                    e.printStackTrace();
+                    return;
+                }
+            }
+        }
+        if (!spool.append(entry)) {
+            AdventureUtils.sendMessagePluginConsole(addon, "<red> The database spool is full, dropping the write of " + entry.dataType() + "/" + entry.id());
+        }
+    }
+
+    private void apply(SqlSpool.Entry entry, Data data) throws SQLException {
+        TableDefinition tableDefinition = getTable(entry.dataType());
+        if (entry.operation() == SqlSpool.Operation.SAVE) {
+            upsert(tableDefinition, entry.id(), entry.data(), data);
+            return;
+        }
+        try (PreparedStatement pstmt = connection().prepareStatement("DELETE FROM " + entry.dataType() + " WHERE " + DATA_ID_NAME_COLUMN + " = ?")) {
+            pstmt.setString(1, entry.id());
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Replays the spooled writes in order, stopping at the first connection failure.
+     */
+    private void replaySpool() {
+        List<SqlSpool.Entry> entries = spool.readAll();
+        int replayed = 0;
+        for (SqlSpool.Entry entry : entries) {
+            try {
+                apply(entry, null);
+            } catch (SQLException e) {
+                if (recordFailure(e)) break;
+                e.printStackTrace(); // not a connection problem, retrying would fail again
+            }
+            replayed++;
+        }
+        spool.removeFirst(replayed);
+        if (replayed > 0) AdventureUtils.sendMessagePluginConsole(addon, "<green> Replayed " + replayed + " spooled database writes.");
+    }
+
+    /**
+     * Inserts or updates the data in a single statement. When the data is not known, as for spooled writes,
+     * it is deserialized to project the indexed columns, which are set to null if it is not a {@link Data},
+     * so they never keep the values of a previous save.
+     * <p>
+     * Tables without a primary key are updated first and only inserted if no row was updated, since the upsert
+     * would insert a new row every time.
+     */
+    private void upsert(TableDefinition tableDefinition, String dataID, String dataStr, Data data) throws SQLException {
+        boolean withIndexedColumns = !tableDefinition.getIndexedColumns().isEmpty();
+        if (withIndexedColumns && data == null) data = deserializeData(dataStr);
+        if (tablesWithoutPrimaryKey.contains(tableDefinition.getName())) {
+            try (PreparedStatement pstmt = connection().prepareStatement(tableDefinition.updateSql(withIndexedColumns))) {
+                int index = setDataColumns(pstmt, 1, tableDefinition, dataStr, data, withIndexedColumns);
+                pstmt.setString(index, dataID);
+                if (pstmt.executeUpdate() > 0) return;
+            }
+            try (PreparedStatement pstmt = connection().prepareStatement(tableDefinition.insertSql(withIndexedColumns))) {
+                pstmt.setString(1, dataID);
+                setDataColumns(pstmt, 2, tableDefinition, dataStr, data, withIndexedColumns);
+                pstmt.executeUpdate();
+            }
+            return;
+        }
+        try (PreparedStatement pstmt = connection().prepareStatement(tableDefinition.upsertSql(withIndexedColumns))) {
+            pstmt.setString(1, dataID);
+            setDataColumns(pstmt, 2, tableDefinition, dataStr, data, withIndexedColumns);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Sets the data column and then the indexed columns starting at the parameter index, returning the next index.
+     */
+    private static int setDataColumns(PreparedStatement pstmt, int index, TableDefinition tableDefinition, String dataStr, Data data, boolean withIndexedColumns) throws SQLException {
+        if (tableDefinition.isBinary()) pstmt.setBytes(index++, Base64.getDecoder().decode(dataStr));
+        else pstmt.setString(index++, dataStr);
+        if (withIndexedColumns) {
+            for (IndexedColumn column : tableDefinition.getIndexedColumns()) {
+                pstmt.setObject(index++, data == null ? null : column.extract(data));
+            }
+        }
+        return index;
+    }
+
+    private static Data deserializeData(String dataStr) {
+        try {
+            return Utils.deserializeObjectBukkit(dataStr) instanceof Data data ? data : null;
+        } catch (IOException | ClassNotFoundException | IllegalArgumentException e) {
+            return null;
+        }
     }
 
     public void stop(){
+        bukkitTask.cancel();
         try {
-            connection.close();
+            if (connection != null) connection.close();
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
-
-        bukkitTask.cancel();
     }
 }
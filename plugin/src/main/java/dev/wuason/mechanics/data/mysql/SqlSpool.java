@@ -0,0 +1,173 @@
+package dev.wuason.mechanics.data.mysql;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bounded file that keeps the writes of a {@link SqlManager} made while the database is unreachable,
+ * so they can be replayed in order once it recovers. It survives restarts.
+ */
+public class SqlSpool {
+
+    public enum Operation {
+        SAVE,
+        REMOVE
+    }
+
+    public record Entry(Operation operation, String dataType, String id, String data) {
+    }
+
+    private final File file;
+    private final int maxEntries;
+    private int size;
+    // the last spooled entry of every data type and id, so reads can see the writes not replayed yet
+    private final Map<String, Entry> latestEntries = new HashMap<>();
+    private long droppedEntries = 0L;
+    private long replayedEntries = 0L;
+
+    public SqlSpool(File file, int maxEntries) {
+        this.file = file;
+        this.maxEntries = maxEntries;
+        List<Entry> entries = file.exists() ? readAll() : List.of();
+        this.size = entries.size();
+        for (Entry entry : entries) latestEntries.put(key(entry.dataType(), entry.id()), entry);
+    }
+
+    /**
+     * Appends the entry to the spool.
+     *
+     * @return false if the spool is full and the entry was dropped.
+     */
+    public synchronized boolean append(Entry entry) {
+        if (size >= maxEntries) {
+            droppedEntries++;
+            return false;
+        }
+        file.getParentFile().mkdirs();
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8))) {
+            writer.write(encode(entry));
+            writer.write('\n');
+        } catch (IOException e) {
+            droppedEntries++;
+            return false;
+        }
+        size++;
+        latestEntries.put(key(entry.dataType(), entry.id()), entry);
+        return true;
+    }
+
+    /**
+     * Retrieves the last spooled write of the id, which is newer than what the database holds.
+     *
+     * @return The entry, or null if the id has no spooled writes.
+     */
+    public synchronized Entry getLatest(String dataType, String id) {
+        if (size == 0) return null;
+        return latestEntries.get(key(dataType, id));
+    }
+
+    private static String key(String dataType, String id) {
+        return dataType + '\0' + id;
+    }
+
+    public synchronized List<Entry> readAll() {
+        List<Entry> entries = new ArrayList<>();
+        if (!file.exists()) return entries;
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Entry entry = decode(line);
+                if (entry != null) entries.add(entry);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return entries;
+    }
+
+    /**
+     * Removes the first entries once they have been replayed, entries appended meanwhile are kept.
+     *
+     * @param count The amount of entries that were replayed.
+     */
+    public synchronized void removeFirst(int count) {
+        if (count <= 0) return;
+        replayedEntries += count;
+        List<Entry> entries = readAll();
+        List<Entry> remaining = entries.subList(Math.min(count, entries.size()), entries.size());
+        if (remaining.isEmpty()) {
+            file.delete();
+            size = 0;
+            latestEntries.clear();
+            return;
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8))) {
+            for (Entry entry : remaining) {
+                writer.write(encode(entry));
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        size = remaining.size();
+        latestEntries.clear();
+        for (Entry entry : remaining) latestEntries.put(key(entry.dataType(), entry.id()), entry);
+    }
+
+    private static String encode(Entry entry) {
+        Base64.Encoder encoder = Base64.getUrlEncoder();
+        return entry.operation().name() + "\t"
+                + encoder.encodeToString(entry.dataType().getBytes(StandardCharsets.UTF_8)) + "\t"
+                + encoder.encodeToString(entry.id().getBytes(StandardCharsets.UTF_8))
+                + (entry.data() == null ? "" : "\t" + encoder.encodeToString(entry.data().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static Entry decode(String line) {
+        String[] parts = line.split("\t");
+        if (parts.length < 3) return null;
+        try {
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            return new Entry(Operation.valueOf(parts[0]),
+                    new String(decoder.decode(parts[1]), StandardCharsets.UTF_8),
+                    new String(decoder.decode(parts[2]), StandardCharsets.UTF_8),
+                    parts.length > 3 ? new String(decoder.decode(parts[3]), StandardCharsets.UTF_8) : null);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public synchronized long getDroppedEntries() {
+        return droppedEntries;
+    }
+
+    public synchronized long getReplayedEntries() {
+        return replayedEntries;
+    }
+
+    public File getFile() {
+        return file;
+    }
+}
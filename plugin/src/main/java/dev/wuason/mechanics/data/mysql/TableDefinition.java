@@ -0,0 +1,164 @@
+package dev.wuason.mechanics.data.mysql;
+
+import dev.wuason.mechanics.data.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The schema of a table used to store {@link Data}: a primary key on {@link SqlManager#DATA_ID_NAME_COLUMN},
+ * the serialized data as text or as a blob and optional indexed columns projected out of the data.
+ *
+ * <pre>{@code
+ * sqlManager.registerTable(TableDefinition.builder("storages")
+ *         .binary(true)
+ *         .index("owner", TableDefinition.UUID_TYPE, data -> getOwner(data).toString())
+ *         .index("chunk_key", TableDefinition.LONG_TYPE, data -> getChunkKey(data))
+ *         .build());
+ * }</pre>
+ */
+public class TableDefinition {
+
+    public static final String ID_TYPE = "VARCHAR(255)";
+    public static final String TEXT_TYPE = "MEDIUMTEXT";
+    public static final String BLOB_TYPE = "MEDIUMBLOB";
+    public static final String UUID_TYPE = "CHAR(36)";
+    public static final String WORLD_TYPE = "VARCHAR(64)";
+    public static final String LONG_TYPE = "BIGINT";
+
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    /**
+     * Creates the definition used for data types that were not registered: only the primary key and a text data column.
+     */
+    public static TableDefinition defaultDefinition(String name) {
+        return new Builder(name).build();
+    }
+
+    private final String name;
+    private final boolean binary;
+    private final List<IndexedColumn> indexedColumns;
+
+    protected TableDefinition(Builder builder) {
+        this.name = builder.name;
+        this.binary = builder.binary;
+        this.indexedColumns = List.copyOf(builder.indexedColumns);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isBinary() {
+        return binary;
+    }
+
+    public List<IndexedColumn> getIndexedColumns() {
+        return indexedColumns;
+    }
+
+    public Column getIdColumn() {
+        return new Column(SqlManager.DATA_ID_NAME_COLUMN, ID_TYPE + " NOT NULL");
+    }
+
+    public Column getDataColumn() {
+        return new Column(SqlManager.DATA_NAME_COLUMN, binary ? BLOB_TYPE : TEXT_TYPE);
+    }
+
+    /**
+     * Retrieves every column of the table, the id and data columns first.
+     */
+    public List<Column> getColumns() {
+        List<Column> columns = new ArrayList<>();
+        columns.add(getIdColumn());
+        columns.add(getDataColumn());
+        columns.addAll(indexedColumns);
+        return columns;
+    }
+
+    public String createTableSql() {
+        StringBuilder sql = new StringBuilder("CREATE TABLE IF NOT EXISTS " + name + " (");
+        for (Column column : getColumns()) {
+            sql.append(column.getName()).append(" ").append(column.getType()).append(", ");
+        }
+        sql.append("PRIMARY KEY (").append(SqlManager.DATA_ID_NAME_COLUMN).append(")");
+        for (IndexedColumn column : indexedColumns) {
+            sql.append(", INDEX ").append(column.getIndexName()).append(" (").append(column.getName()).append(")");
+        }
+        sql.append(");");
+        return sql.toString();
+    }
+
+    /**
+     * Builds an insert that updates the data and the indexed columns when the id already exists.
+     */
+    public String upsertSql(boolean withIndexedColumns) {
+        List<Column> columns = new ArrayList<>();
+        columns.add(getIdColumn());
+        columns.add(getDataColumn());
+        if (withIndexedColumns) columns.addAll(indexedColumns);
+        StringBuilder sql = new StringBuilder("INSERT INTO " + name + " (");
+        StringBuilder values = new StringBuilder();
+        StringBuilder update = new StringBuilder();
+        for (int i = 0; i < columns.size(); i++) {
+            String column = columns.get(i).getName();
+            sql.append(column);
+            values.append("?");
+            if (i < columns.size() - 1) {
+                sql.append(", ");
+                values.append(", ");
+            }
+            if (i == 0) continue;
+            if (update.length() > 0) update.append(", ");
+            update.append(column).append(" = VALUES(").append(column).append(")");
+        }
+        return sql.append(") VALUES (").append(values).append(") ON DUPLICATE KEY UPDATE ").append(update).toString();
+    }
+
+    /**
+     * Builds an update of the data and the indexed columns by id, used with {@link #insertSql(boolean)} when the
+     * table has no primary key and {@link #upsertSql(boolean)} would insert duplicated rows.
+     */
+    public String updateSql(boolean withIndexedColumns) {
+        StringBuilder sql = new StringBuilder("UPDATE " + name + " SET " + getDataColumn().getName() + " = ?");
+        if (withIndexedColumns) {
+            for (IndexedColumn column : indexedColumns) sql.append(", ").append(column.getName()).append(" = ?");
+        }
+        return sql.append(" WHERE ").append(SqlManager.DATA_ID_NAME_COLUMN).append(" = ?").toString();
+    }
+
+    public String insertSql(boolean withIndexedColumns) {
+        String upsert = upsertSql(withIndexedColumns);
+        return upsert.substring(0, upsert.indexOf(" ON DUPLICATE KEY UPDATE "));
+    }
+
+    public static class Builder {
+        private final String name;
+        private boolean binary = false;
+        private final List<IndexedColumn> indexedColumns = new ArrayList<>();
+
+        protected Builder(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Stores the serialized data as a blob instead of Base64 text.
+         */
+        public Builder binary(boolean binary) {
+            this.binary = binary;
+            return this;
+        }
+
+        public Builder index(String columnName, String type, Function<Data, ?> extractor) {
+            this.indexedColumns.add(new IndexedColumn(columnName, type, extractor));
+            return this;
+        }
+
+        public TableDefinition build() {
+            return new TableDefinition(this);
+        }
+    }
+}
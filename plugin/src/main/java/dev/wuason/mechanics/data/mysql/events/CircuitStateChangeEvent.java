@@ -0,0 +1,32 @@
+package dev.wuason.mechanics.data.mysql.events;
+
+import dev.wuason.mechanics.data.mysql.CircuitBreaker;
+import dev.wuason.mechanics.data.mysql.SqlManager;
+
+/**
+ * Called, usually from an async thread, when the database connection of a {@link SqlManager} is lost,
+ * reconnected or confirmed healthy again.
+ */
+public class CircuitStateChangeEvent {
+    private final SqlManager sqlManager;
+    private final CircuitBreaker.State previousState;
+    private final CircuitBreaker.State state;
+
+    public CircuitStateChangeEvent(SqlManager sqlManager, CircuitBreaker.State previousState, CircuitBreaker.State state) {
+        this.sqlManager = sqlManager;
+        this.previousState = previousState;
+        this.state = state;
+    }
+
+    public SqlManager getSqlManager() {
+        return sqlManager;
+    }
+
+    public CircuitBreaker.State getPreviousState() {
+        return previousState;
+    }
+
+    public CircuitBreaker.State getState() {
+        return state;
+    }
+}
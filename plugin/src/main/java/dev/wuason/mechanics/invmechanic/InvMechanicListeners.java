@@ -5,22 +5,58 @@ import dev.wuason.mechanics.invmechanic.events.CloseEvent;
 import dev.wuason.mechanics.invmechanic.types.InvCustom;
 import dev.wuason.mechanics.invmechanic.types.InvCustomAnvil;
 import org.bukkit.Bukkit;
+import org.bukkit.entity.HumanEntity;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.entity.EntityDamageEvent;
 import org.bukkit.event.entity.EntityPickupItemEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.server.PluginDisableEvent;
-import org.bukkit.inventory.Inventory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
 
 public class InvMechanicListeners implements Listener {
 
     private final Mechanics core;
+    // the custom inventory open by each player, so damage and pickup events do not look up the holder
+    private final Map<UUID, InvCustom> openInventories = new HashMap<>();
 
     public InvMechanicListeners(Mechanics core) {
         this.core = core;
     }
 
+    //*************************OPEN INVENTORIES*************************
+
+    /**
+     * Registers the custom inventory open by the player, only needed for inventories opened
+     * without an InventoryOpenEvent, like the anvils opened through packets.
+     */
+    public void registerOpenInventory(HumanEntity player, InvCustom invCustom) {
+        openInventories.put(player.getUniqueId(), invCustom);
+    }
+
+    public void unregisterOpenInventory(HumanEntity player, InvCustom invCustom) {
+        openInventories.remove(player.getUniqueId(), invCustom);
+    }
+
+    /**
+     * Returns the custom inventory open by the player.
+     *
+     * @return The custom inventory, or null if the player does not have one open.
+     */
+    public InvCustom getOpenInventory(HumanEntity player) {
+        if (openInventories.isEmpty()) return null;
+        return openInventories.get(player.getUniqueId());
+    }
+
+    public int getOpenInventoriesCount() {
+        return openInventories.size();
+    }
+
 
     /**
      * Handles click events in custom inventories. When a player clicks inside an inventory,
@@ -50,6 +86,18 @@ public class InvMechanicListeners implements Listener {
         }
     }
 
+    /**
+     * Registers the custom inventory once the open event can no longer be cancelled.
+     *
+     * @param event The InventoryOpenEvent triggered when an inventory is opened.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryOpenMonitor(org.bukkit.event.inventory.InventoryOpenEvent event) {
+        if (event.getInventory().getHolder() instanceof InvCustom holder) {
+            registerOpenInventory(event.getPlayer(), holder);
+        }
+    }
+
     /**
      * Manages the closing of custom inventories. This method checks if the closing
      * inventory is of the custom type (InvCustom). If so, it processes the close event
@@ -61,6 +109,7 @@ public class InvMechanicListeners implements Listener {
     @EventHandler
     public void onInventoryClose(org.bukkit.event.inventory.InventoryCloseEvent event) {
         if (event.getInventory().getHolder() instanceof InvCustom holder) {
+            unregisterOpenInventory(event.getPlayer(), holder);
             CloseEvent closeEvent = new CloseEvent(event);
             holder.handleClose(closeEvent);
             if (closeEvent.isCancelled()) {
@@ -96,12 +145,11 @@ public class InvMechanicListeners implements Listener {
      */
     @EventHandler
     public void onPlayerDamage(EntityDamageEvent event) {
+        if (openInventories.isEmpty()) return;
         if (event.getEntity() instanceof Player player) {
-            Inventory topInv = player.getOpenInventory().getTopInventory();
-            if (topInv.getHolder() instanceof InvCustom holder) {
-                if (holder.isDamageCancel()) {
-                    event.setCancelled(true);
-                }
+            InvCustom holder = openInventories.get(player.getUniqueId());
+            if (holder != null && holder.isDamageCancel()) {
+                event.setCancelled(true);
             }
         }
     }
@@ -115,14 +163,12 @@ public class InvMechanicListeners implements Listener {
      */
     @EventHandler
     public void onPlayerPickup(org.bukkit.event.player.PlayerPickupItemEvent event) {
-        Player player = event.getPlayer();
-        Inventory topInventory = player.getOpenInventory().getTopInventory();
+        if (openInventories.isEmpty()) return;
 
-        // Check if the top inventory is a custom inventory and if it cancels pickups
-        if (topInventory.getHolder() instanceof InvCustom customInventory) {
-            if (customInventory.isPickupCancel()) {
-                event.setCancelled(true);
-            }
+        // Check if the open inventory is a custom inventory and if it cancels pickups
+        InvCustom customInventory = openInventories.get(event.getPlayer().getUniqueId());
+        if (customInventory != null && customInventory.isPickupCancel()) {
+            event.setCancelled(true);
         }
     }
 
@@ -137,22 +183,32 @@ public class InvMechanicListeners implements Listener {
      */
     @EventHandler
     public void onPlayerPickup(EntityPickupItemEvent event) {
+        if (openInventories.isEmpty()) return;
         if (event.getEntity() instanceof Player player) {
-            Inventory topInventory = player.getOpenInventory().getTopInventory();
-            if (topInventory.getHolder() instanceof InvCustom customInventory) {
-                if (customInventory.isPickupCancel()) {
-                    event.setCancelled(true);
-                }
+            InvCustom customInventory = openInventories.get(player.getUniqueId());
+            if (customInventory != null && customInventory.isPickupCancel()) {
+                event.setCancelled(true);
             }
         }
     }
 
+    /**
+     * Forgets the custom inventory of players that leave.
+     *
+     * @param event The PlayerQuitEvent triggered when a player leaves.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        openInventories.remove(event.getPlayer().getUniqueId());
+    }
+
     /**
      * Closes all open custom inventories for online players. This method is typically called
      * when the plugin is disabled to ensure all custom inventories are properly closed.
      */
     public void closeAll() {
         Bukkit.getOnlinePlayers().stream().filter(player -> player.getOpenInventory().getTopInventory().getHolder() instanceof InvCustom).forEach(Player::closeInventory);
+        openInventories.clear();
     }
 
     /**
@@ -1,8 +1,7 @@
 package dev.wuason.mechanics.invmechanic.items;
 
-import dev.wuason.mechanics.Mechanics;
 import dev.wuason.mechanics.invmechanic.types.InvCustom;
-import org.bukkit.NamespacedKey;
+import org.bukkit.Material;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
@@ -14,7 +13,9 @@ import java.util.function.BiConsumer;
 
 public abstract class ItemInterface {
     private final int slot;
-    private final ItemStack itemStack;
+    private ItemStack itemStack;
+    // the item tagged with the id, built once and never handed out
+    private ItemStack itemModified;
     private final String id;
     private String name;
     private ArrayList<Object> data = new ArrayList<>();
@@ -50,6 +51,15 @@ public abstract class ItemInterface {
         return itemStack.clone();
     }
 
+    public void setItemStack(ItemStack itemStack) {
+        this.itemStack = itemStack;
+        invalidateItemModified();
+    }
+
+    public Material getType() {
+        return getCachedItemModified().getType();
+    }
+
     public String getId() {
         return id;
     }
@@ -64,10 +74,33 @@ public abstract class ItemInterface {
         return name;
     }
 
+    /**
+     * Returns a copy of the item tagged with the id of this interface.
+     */
     public ItemStack getItemModified() {
-        ItemStack itemStack = getItemStack();
+        return getCachedItemModified().clone();
+    }
+
+    /**
+     * Returns the cached item tagged with the id of this interface, built the first time it is needed.
+     * It is shared, so it must not be modified; inventories copy the items they are given, so it can be placed as is.
+     */
+    public ItemStack getCachedItemModified() {
+        if(itemModified == null) itemModified = tagItem(getItemStack());
+        return itemModified;
+    }
+
+    /**
+     * Drops the cached item, it is built again the next time it is needed.
+     */
+    public void invalidateItemModified() {
+        itemModified = null;
+    }
+
+    protected ItemStack tagItem(ItemStack item) {
+        ItemStack itemStack = item.clone();
         ItemMeta itemMeta = itemStack.getItemMeta();
-        itemMeta.getPersistentDataContainer().set(new NamespacedKey(Mechanics.getInstance(), InvCustom.NAMESPACE_ITEM_INTERFACE_PREFIX), PersistentDataType.STRING, id);
+        itemMeta.getPersistentDataContainer().set(InvCustom.getItemInterfaceKey(), PersistentDataType.STRING, id);
         itemStack.setItemMeta(itemMeta);
         return itemStack;
     }
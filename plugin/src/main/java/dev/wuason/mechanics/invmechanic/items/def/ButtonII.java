@@ -1,13 +1,9 @@
 package dev.wuason.mechanics.invmechanic.items.def;
 
-import dev.wuason.mechanics.Mechanics;
 import dev.wuason.mechanics.invmechanic.items.ItemInterface;
 import dev.wuason.mechanics.invmechanic.types.InvCustom;
-import org.bukkit.NamespacedKey;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.meta.ItemMeta;
-import org.bukkit.persistence.PersistentDataType;
 
 import java.util.ArrayList;
 import java.util.UUID;
@@ -17,6 +13,8 @@ public class ButtonII extends ItemInterface {
     private ItemStack itemOn;
     private ItemStack itemOff;
     private boolean state = false;
+    private ItemStack itemOnModified;
+    private ItemStack itemOffModified;
 
     public ButtonII(int slot, ItemStack itemOn, ItemStack itemOff, String id, String name, boolean state, ArrayList<Object> data) {
         super(slot, null, id, name, data);
@@ -70,10 +68,12 @@ public class ButtonII extends ItemInterface {
 
     public void setItemOn(ItemStack itemOn) {
         this.itemOn = itemOn;
+        this.itemOnModified = null;
     }
 
     public void setItemOff(ItemStack itemOff) {
         this.itemOff = itemOff;
+        this.itemOffModified = null;
     }
 
     public void setState(boolean state) {
@@ -88,17 +88,20 @@ public class ButtonII extends ItemInterface {
 
     //************ ITEM GETTER ************//
 
-    private ItemStack getItemModified(ItemStack i){
-        ItemStack itemStack = i.clone();
-        ItemMeta itemMeta = itemStack.getItemMeta();
-        itemMeta.getPersistentDataContainer().set(new NamespacedKey(Mechanics.getInstance(), InvCustom.NAMESPACE_ITEM_INTERFACE_PREFIX), PersistentDataType.STRING, getId());
-        itemStack.setItemMeta(itemMeta);
-        return itemStack;
+    @Override
+    public ItemStack getCachedItemModified() {
+        if(isState()){
+            if(itemOnModified == null) itemOnModified = tagItem(getItemOn());
+            return itemOnModified;
+        }
+        if(itemOffModified == null) itemOffModified = tagItem(getItemOff());
+        return itemOffModified;
     }
 
     @Override
-    public ItemStack getItemModified() {
-        return getItemModified(isState() ? getItemOn() : getItemOff());
+    public void invalidateItemModified() {
+        itemOnModified = null;
+        itemOffModified = null;
     }
 
     @Override
@@ -43,6 +43,9 @@ public class InvCustom implements InventoryHolder {
     private List<Consumer<InventoryDragEvent>> dragEventsListeners = new ArrayList<>();
     private List<Consumer<ItemInterfaceClickEvent>> itemInterfaceClickEventsListeners = new ArrayList<>();
     private HashMap<Integer, Consumer<InventoryClickEvent>> slotClickEventsListeners = new HashMap<>();
+    // item interfaces by the slot they were set in through this class, so clicks do not read the item
+    private ItemInterface[] slotItemInterfaces;
+    private static NamespacedKey itemInterfaceKey;
 
     //*************************INVENTORY*************************
 
@@ -86,6 +89,12 @@ public class InvCustom implements InventoryHolder {
 
     public void setInventory(Inventory inventory) {
         this.inventory = inventory;
+        this.slotItemInterfaces = null;
+    }
+
+    public static NamespacedKey getItemInterfaceKey() {
+        if(itemInterfaceKey == null) itemInterfaceKey = new NamespacedKey(Mechanics.getInstance(), NAMESPACE_ITEM_INTERFACE_PREFIX);
+        return itemInterfaceKey;
     }
 
 
@@ -108,31 +117,51 @@ public class InvCustom implements InventoryHolder {
 
     public void handleClick(InventoryClickEvent event) {
 
-        if(event.getCurrentItem() != null){
-            if(event.getCurrentItem().getItemMeta() != null){
-                //ITEM INTERFACE CLICK
-                if(event.getCurrentItem().getItemMeta().getPersistentDataContainer().has(new NamespacedKey(Mechanics.getInstance(), InvCustom.NAMESPACE_ITEM_INTERFACE_PREFIX) , PersistentDataType.STRING)){
-                    String namespace = event.getCurrentItem().getItemMeta().getPersistentDataContainer().get(new NamespacedKey(Mechanics.getInstance(), InvCustom.NAMESPACE_ITEM_INTERFACE_PREFIX) , PersistentDataType.STRING);
-                    if(itemInterfaces.containsKey(namespace)){
-                        event.setCancelled(true);
-                        ItemInterface itemInterface = itemInterfaces.get(namespace);
-                        itemInterface.onClick(event, this);
-                        ItemInterfaceClickEvent itemInterfaceClickEvent = new ItemInterfaceClickEvent(itemInterface, event);
-                        itemInterfaceClickEventsListeners.forEach(consumer -> consumer.accept(itemInterfaceClickEvent));
-                        onItemInterfaceClick(itemInterfaceClickEvent);
-                    }
-                }
-            }
+        //ITEM INTERFACE CLICK
+        ItemInterface itemInterface = getClickedItemInterface(event.getRawSlot(), event.getCurrentItem());
+        if(itemInterface != null){
+            event.setCancelled(true);
+            itemInterface.onClick(event, this);
+            ItemInterfaceClickEvent itemInterfaceClickEvent = new ItemInterfaceClickEvent(itemInterface, event);
+            itemInterfaceClickEventsListeners.forEach(consumer -> consumer.accept(itemInterfaceClickEvent));
+            onItemInterfaceClick(itemInterfaceClickEvent);
         }
 
-        if(slotClickEventsListeners.containsKey(event.getRawSlot())){
-            slotClickEventsListeners.get(event.getSlot()).accept(event);
+        Consumer<InventoryClickEvent> slotClickEventListener = slotClickEventsListeners.get(event.getRawSlot());
+        if(slotClickEventListener != null){
+            slotClickEventListener.accept(event);
         }
 
         clickEventsListeners.forEach(consumer -> consumer.accept(event));
 
         onClick(event);
     }
+    /**
+     * Finds the registered item interface of the clicked item, first by the slot it was set in and then,
+     * for items moved or set directly on the inventory, by the id stored in the item.
+     */
+    private ItemInterface getClickedItemInterface(int rawSlot, ItemStack currentItem){
+        if(currentItem == null) return null;
+        if(slotItemInterfaces != null && rawSlot >= 0 && rawSlot < slotItemInterfaces.length){
+            ItemInterface itemInterface = slotItemInterfaces[rawSlot];
+            if(itemInterface != null && itemInterface.getType() == currentItem.getType() && itemInterfaces.get(itemInterface.getId()) == itemInterface){
+                return itemInterface;
+            }
+        }
+        if(!currentItem.hasItemMeta()) return null;
+        String id = currentItem.getItemMeta().getPersistentDataContainer().get(getItemInterfaceKey(), PersistentDataType.STRING);
+        return id == null ? null : itemInterfaces.get(id);
+    }
+
+    private void setSlotItemInterface(int slot, ItemInterface itemInterface){
+        if(inventory == null || slot < 0 || slot >= inventory.getSize()) return;
+        if(slotItemInterfaces == null || slotItemInterfaces.length != inventory.getSize()){
+            if(itemInterface == null) return;
+            slotItemInterfaces = new ItemInterface[inventory.getSize()];
+        }
+        slotItemInterfaces[slot] = itemInterface;
+    }
+
     public void handleOpen(InventoryOpenEvent event) {
 
         openEventsListeners.forEach(consumer -> consumer.accept(event));
@@ -271,25 +300,27 @@ public class InvCustom implements InventoryHolder {
     public void setItem(int slot, ItemStack item, Consumer<InventoryClickEvent> consumer){
         if(item == null) return;
         inventory.setItem(slot, item);
+        setSlotItemInterface(slot, null);
         slotClickEventsListeners.put(slot, consumer);
     }
     //ARRAY
     public void setItem(int[] slot, ItemStack item, Consumer<InventoryClickEvent> consumer){
         if(item == null) return;
+        beginUpdate().set(slot, item).apply();
         for(int i : slot){
-            inventory.setItem(i, item);
             slotClickEventsListeners.put(i, consumer);
         }
     }
     //remove
     public void removeItem(int slot){
         inventory.setItem(slot, null);
+        setSlotItemInterface(slot, null);
         slotClickEventsListeners.remove(slot);
     }
     //ARRAY
     public void removeItem(int[] slot){
+        beginUpdate().clear(slot).apply();
         for(int i : slot){
-            inventory.setItem(i, null);
             slotClickEventsListeners.remove(i);
         }
     }
@@ -321,40 +352,44 @@ public class InvCustom implements InventoryHolder {
     //******* Set & Remove ********
 
     public void setItemInterfaceInv(ItemInterface itemInterface){
-        inventory.setItem(itemInterface.getSlot(), itemInterface.getItemModified());
+        setItemInterfaceInv(itemInterface, itemInterface.getSlot());
     }
     //ARRAY
     public void setItemInterfaceInv(ItemInterface[] itemInterfaces){
+        Update update = beginUpdate();
         for(ItemInterface itemInterface : itemInterfaces){
-            inventory.setItem(itemInterface.getSlot(), itemInterface.getItemModified());
+            update.set(itemInterface);
         }
+        update.apply();
     }
     public void setItemInterfaceInv(ItemInterface item, int slot){
-        inventory.setItem(slot, item.getItemModified());
+        inventory.setItem(slot, item.getCachedItemModified());
+        setSlotItemInterface(slot, item);
     }
     //ARRAY only slots
     public void setItemInterfaceInv(ItemInterface item, int[] slots){
-        for(int slot : slots){
-            inventory.setItem(slot, item.getItemModified());
-        }
+        beginUpdate().set(slots, item).apply();
     }
 
     public void setItemInterfaceInv(String id){
         if(!itemInterfaces.containsKey(id)) return;
-        inventory.setItem(itemInterfaces.get(id).getSlot(), itemInterfaces.get(id).getItemModified());
+        setItemInterfaceInv(itemInterfaces.get(id));
     }
 
     public void removeItemInterfaceInv(String id){
-        inventory.setItem(itemInterfaces.get(id).getSlot(), null);
+        removeItemInterfaceInv(itemInterfaces.get(id));
     }
     public void removeItemInterfaceInv(ItemInterface itemInterface){
         inventory.setItem(itemInterface.getSlot(), null);
+        setSlotItemInterface(itemInterface.getSlot(), null);
     }
 
     public void removeItemInterfaceInv(ItemInterface[] itemInterfaces){
+        Update update = beginUpdate();
         for(ItemInterface itemInterface : itemInterfaces){
-            inventory.setItem(itemInterface.getSlot(), null);
+            update.clear(itemInterface.getSlot());
         }
+        update.apply();
     }
 
     //******* Register & Set ********
@@ -394,14 +429,14 @@ public class InvCustom implements InventoryHolder {
     public boolean isItemInterface(int slot){
         if(inventory.getItem(slot) != null){
             ItemMeta itemMeta = inventory.getItem(slot).getItemMeta();
-            return itemMeta.getPersistentDataContainer().has(new NamespacedKey(Mechanics.getInstance(), InvCustom.NAMESPACE_ITEM_INTERFACE_PREFIX), PersistentDataType.STRING);
+            return itemMeta.getPersistentDataContainer().has(getItemInterfaceKey(), PersistentDataType.STRING);
         }
         return false;
     }
     public boolean isItemInterface(ItemStack item){
         if(item != null){
             ItemMeta itemMeta = item.getItemMeta();
-            return itemMeta.getPersistentDataContainer().has(new NamespacedKey(Mechanics.getInstance(), InvCustom.NAMESPACE_ITEM_INTERFACE_PREFIX), PersistentDataType.STRING);
+            return itemMeta.getPersistentDataContainer().has(getItemInterfaceKey(), PersistentDataType.STRING);
         }
         return false;
     }
@@ -445,11 +480,14 @@ public class InvCustom implements InventoryHolder {
                 || (i > size - 11 && i < size - 7) || i > size - 3).toArray();
     }
     public void fillEmptySlots(ItemStack item) {
-        for (int i = 0; i < inventory.getSize(); i++) {
-            if (inventory.getItem(i) == null) {
-                inventory.setItem(i, item);
+        ItemStack[] contents = inventory.getContents();
+        Update update = beginUpdate();
+        for (int i = 0; i < contents.length; i++) {
+            if (contents[i] == null) {
+                update.set(i, item);
             }
         }
+        update.apply();
     }
 
     // Intercambia dos ítems en el inventario
@@ -458,6 +496,11 @@ public class InvCustom implements InventoryHolder {
         ItemStack item2 = inventory.getItem(slot2);
         inventory.setItem(slot1, item2);
         inventory.setItem(slot2, item1);
+        if(slotItemInterfaces != null){
+            ItemInterface itemInterface1 = slotItemInterfaces[slot1];
+            slotItemInterfaces[slot1] = slotItemInterfaces[slot2];
+            slotItemInterfaces[slot2] = itemInterface1;
+        }
     }
 
     // Desplaza todos los ítems en el inventario hacia la derecha
@@ -467,6 +510,7 @@ public class InvCustom implements InventoryHolder {
         System.arraycopy(items, 0, items, 1, items.length - 1);
         items[0] = lastItem;
         inventory.setContents(items);
+        slotItemInterfaces = null;
     }
 
     // Desplaza todos los ítems en el inventario hacia la izquierda
@@ -476,6 +520,7 @@ public class InvCustom implements InventoryHolder {
         System.arraycopy(items, 1, items, 0, items.length - 1);
         items[items.length - 1] = firstItem;
         inventory.setContents(items);
+        slotItemInterfaces = null;
     }
 
     // Obtiene un mapa de todos los ítems en el inventario y sus cantidades
@@ -492,14 +537,16 @@ public class InvCustom implements InventoryHolder {
     // Elimina una cantidad específica de un ítem específico
     public void removeItemAmount(ItemStack item, int amount) {
         int remaining = amount;
-        for (ItemStack slotItem : inventory.getContents()) {
+        ItemStack[] contents = inventory.getContents();
+        for (int i = 0; i < contents.length; i++) {
+            ItemStack slotItem = contents[i];
             if (slotItem != null && slotItem.isSimilar(item)) {
                 int newAmount = slotItem.getAmount() - remaining;
                 if (newAmount > 0) {
                     slotItem.setAmount(newAmount);
                     break;
                 } else {
-                    inventory.remove(slotItem);
+                    setItemInSlot(i, null);
                     remaining -= slotItem.getAmount();
                     if (remaining <= 0) break;
                 }
@@ -526,6 +573,7 @@ public class InvCustom implements InventoryHolder {
 
     public void setItemInSlot(int slot, ItemStack item) {
         inventory.setItem(slot, item);
+        setSlotItemInterface(slot, null);
     }
 
     // Obtiene un item de una ranura específica
@@ -535,31 +583,39 @@ public class InvCustom implements InventoryHolder {
 
     // Llena la fila superior con un item específico
     public void fillTopRow(ItemStack item) {
+        Update update = beginUpdate();
         for (int i = 0; i < 9; i++) {
-            inventory.setItem(i, item);
+            update.set(i, item);
         }
+        update.apply();
     }
 
     // Llena la fila inferior con un item específico
     public void fillBottomRow(ItemStack item) {
         int size = inventory.getSize();
+        Update update = beginUpdate();
         for (int i = size - 9; i < size; i++) {
-            inventory.setItem(i, item);
+            update.set(i, item);
         }
+        update.apply();
     }
 
     // Llena la columna izquierda con un item específico
     public void fillLeftColumn(ItemStack item) {
+        Update update = beginUpdate();
         for (int i = 0; i < inventory.getSize(); i += 9) {
-            inventory.setItem(i, item);
+            update.set(i, item);
         }
+        update.apply();
     }
 
     // Llena la columna derecha con un item específico
     public void fillRightColumn(ItemStack item) {
+        Update update = beginUpdate();
         for (int i = 8; i < inventory.getSize(); i += 9) {
-            inventory.setItem(i, item);
+            update.set(i, item);
         }
+        update.apply();
     }
 
     // Obtiene todos los items de la fila superior
@@ -583,12 +639,21 @@ public class InvCustom implements InventoryHolder {
 
     // Llena el inventario con un array de items, comenzando por la ranura 0
     public void fillInventoryFromArray(ItemStack[] items) {
+        Update update = beginUpdate();
         for (int i = 0; i < items.length; i++) {
             if (i >= inventory.getSize()) {
                 break; // No hay más espacio en el inventario
             }
-            inventory.setItem(i, items[i]);
+            update.set(i, items[i]);
         }
+        update.apply();
+    }
+
+    // Copia los items de otro inventario junto con las item interfaces de sus ranuras
+    public void copyContentsFrom(InvCustom other) {
+        inventory.setContents(other.getInventory().getContents());
+        ItemInterface[] otherSlotItemInterfaces = other.slotItemInterfaces;
+        slotItemInterfaces = otherSlotItemInterfaces == null || otherSlotItemInterfaces.length != inventory.getSize() ? null : otherSlotItemInterfaces.clone();
     }
 
     // Obtiene todos los items del inventario en un array
@@ -606,6 +671,7 @@ public class InvCustom implements InventoryHolder {
     // Remueve todos los items del inventario
     public void clearInventory() {
         inventory.clear();
+        slotItemInterfaces = null;
     }
 
     // Verifica si un slot específico está vacío
@@ -635,9 +701,7 @@ public class InvCustom implements InventoryHolder {
     }
 
     public void setItems(int[] slots, ItemStack item) {
-        for (int slot : slots) {
-            inventory.setItem(slot, item);
-        }
+        beginUpdate().set(slots, item).apply();
     }
 
     public int[] getSlotsWithItem(ItemStack item) {
@@ -698,12 +762,11 @@ public class InvCustom implements InventoryHolder {
 
     public void setItem(int slot, ItemStack item) {
         inventory.setItem(slot, item);
+        setSlotItemInterface(slot, null);
     }
 
     public void setSimpleItems(int[] slots, ItemStack item) {
-        for (int slot : slots) {
-            inventory.setItem(slot, item);
-        }
+        beginUpdate().set(slots, item).apply();
     }
 
     public void updateTitle(String title) {
@@ -717,6 +780,130 @@ public class InvCustom implements InventoryHolder {
 
     public void setInventoryTitle(Inventory inventory) {
         this.inventory = inventory;
+        this.slotItemInterfaces = null;
+    }
+
+    //*************************UPDATES*************************
+
+    /**
+     * Starts a transactional update of the inventory, the staged items are applied with {@link Update#apply()}.
+     */
+    public Update beginUpdate() {
+        return new Update(this);
+    }
+
+    /**
+     * Stages the changes made by the consumer and applies them in one pass.
+     *
+     * @return The number of slots that changed.
+     */
+    public int update(Consumer<Update> consumer) {
+        Update update = beginUpdate();
+        consumer.accept(update);
+        return update.apply();
+    }
+
+    /**
+     * Changes staged for an inventory. When applied, only the slots whose item is different from the current one
+     * are set, and when most of the slots changed the viewers get the whole content in a single packet.
+     */
+    public static class Update {
+
+        private final InvCustom invCustom;
+        private final ItemStack[] staged;
+        private final ItemInterface[] stagedItemInterfaces;
+        private final boolean[] touched;
+
+        private Update(InvCustom invCustom) {
+            this.invCustom = invCustom;
+            int size = invCustom.getInventory().getSize();
+            this.staged = new ItemStack[size];
+            this.stagedItemInterfaces = new ItemInterface[size];
+            this.touched = new boolean[size];
+        }
+
+        public Update set(int slot, ItemStack item) {
+            staged[slot] = item;
+            stagedItemInterfaces[slot] = null;
+            touched[slot] = true;
+            return this;
+        }
+
+        public Update set(int[] slots, ItemStack item) {
+            for (int slot : slots) set(slot, item);
+            return this;
+        }
+
+        public Update set(ItemInterface itemInterface) {
+            return set(itemInterface.getSlot(), itemInterface);
+        }
+
+        public Update set(int slot, ItemInterface itemInterface) {
+            set(slot, itemInterface.getCachedItemModified());
+            stagedItemInterfaces[slot] = itemInterface;
+            return this;
+        }
+
+        public Update set(int[] slots, ItemInterface itemInterface) {
+            ItemStack item = itemInterface.getCachedItemModified();
+            for (int slot : slots) {
+                set(slot, item);
+                stagedItemInterfaces[slot] = itemInterface;
+            }
+            return this;
+        }
+
+        public Update clear(int slot) {
+            return set(slot, (ItemStack) null);
+        }
+
+        public Update clear(int[] slots) {
+            return set(slots, (ItemStack) null);
+        }
+
+        /**
+         * Sets the changed slots and clears the staged changes, so the update can be reused.
+         *
+         * @return The number of slots that changed.
+         */
+        public int apply() {
+            Inventory inventory = invCustom.getInventory();
+            ItemStack[] current = inventory.getContents();
+            int changed = 0;
+            for (int slot = 0; slot < staged.length; slot++) {
+                if (!touched[slot]) continue;
+                invCustom.setSlotItemInterface(slot, stagedItemInterfaces[slot]);
+                stagedItemInterfaces[slot] = null;
+                if (isSameItem(current[slot], staged[slot])) {
+                    touched[slot] = false;
+                    staged[slot] = null;
+                    continue;
+                }
+                changed++;
+            }
+            if (changed == 0) return 0;
+            for (int slot = 0; slot < staged.length; slot++) {
+                if (!touched[slot]) continue;
+                inventory.setItem(slot, staged[slot]);
+                touched[slot] = false;
+                staged[slot] = null;
+            }
+            if (changed * 2 >= staged.length) {
+                for (HumanEntity viewer : inventory.getViewers()) {
+                    if (viewer instanceof Player player && inventory.equals(player.getOpenInventory().getTopInventory())) {
+                        Mechanics.getInstance().getServerNmsVersion().getVersionWrapper().sendContainerContent(player);
+                    }
+                }
+            }
+            return changed;
+        }
+
+        private static boolean isSameItem(ItemStack a, ItemStack b) {
+            boolean emptyA = a == null || a.getType() == Material.AIR;
+            boolean emptyB = b == null || b.getType() == Material.AIR;
+            if (emptyA || emptyB) return emptyA == emptyB;
+            return a.getAmount() == b.getAmount() && a.isSimilar(b);
+        }
     }
 
     public static class Builder {
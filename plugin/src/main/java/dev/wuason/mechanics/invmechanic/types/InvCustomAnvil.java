@@ -15,6 +15,8 @@ import java.util.function.BiConsumer;
 public class InvCustomAnvil extends InvCustom {
     private VersionWrapper.AnvilInventoryCustom anvilInventoryCustom;
     private String renameText = "";
+    private String pendingRenameText = "";
+    private long renameDebounceTicks = 0L;
     private BukkitTask bukkitTask = null;
     private List<BiConsumer<String,String>> renameTextAsyncListeners = new ArrayList<>();
 
@@ -26,7 +28,7 @@ public class InvCustomAnvil extends InvCustom {
     }
 
     //events
-    public void onRenameTextAsync(String before, String now){ // ONLY WORKS IF YOU USE FUNCTION setRenameTextListener
+    public void onRenameTextAsync(String before, String now){ // ONLY WORKS IF YOU USE FUNCTION setRenameTextListener, CALLED ON THE MAIN THREAD
 
 
 
@@ -59,6 +61,9 @@ public class InvCustomAnvil extends InvCustom {
 
     public void open(){
         anvilInventoryCustom.open();
+        // the anvil is opened through packets, so there is no open event to register it
+        Mechanics.getInstance().getManager().getInvMechanicListeners().registerOpenInventory(anvilInventoryCustom.getInventoryView().getPlayer(), this);
+        if(renameDebounceTicks > 0L) installRenameListener();
     }
 
     public VersionWrapper.AnvilInventoryCustom getAnvilInventoryCustom(){
@@ -75,22 +80,47 @@ public class InvCustomAnvil extends InvCustom {
         anvilInventoryCustom.setCheckReachable(false);
     }
 
+    /**
+     * Listens to the rename text typed by the player through the rename packets of the anvil, the listeners are
+     * called on the main thread once the text stops changing for the given ticks.
+     *
+     * @param ticksRefresh the debounce delay in ticks, less than 1 removes the listener
+     */
     public void setRenameTextListener(Long ticksRefresh){
+        anvilInventoryCustom.removeRenameListener();
+        cancelRenameTask();
+        renameDebounceTicks = Math.max(ticksRefresh, 0L);
+        if(ticksRefresh<1L) return;
+        installRenameListener();
+    }
+
+    private void installRenameListener(){
+        anvilInventoryCustom.setRenameListener(text -> Bukkit.getScheduler().runTask(Mechanics.getInstance(), () -> scheduleRenameText(text)));
+    }
+
+    private void scheduleRenameText(String text){
+        pendingRenameText = text == null ? "" : text;
+        cancelRenameTask();
+        bukkitTask = Bukkit.getScheduler().runTaskLater(Mechanics.getInstance(), this::applyRenameText, renameDebounceTicks);
+    }
+
+    private void applyRenameText(){
+        bukkitTask = null;
+        String renameTextAnvil = pendingRenameText;
+        if(renameTextAnvil.equals(renameText)) return;
+        String before = renameText;
+        renameText = renameTextAnvil;
+        onRenameTextAsync(before, renameTextAnvil);
+        for(BiConsumer<String,String> listener : renameTextAsyncListeners){
+            listener.accept(before, renameTextAnvil);
+        }
+    }
+
+    private void cancelRenameTask(){
         if(bukkitTask != null) {
             bukkitTask.cancel();
             bukkitTask = null;
         }
-        if(ticksRefresh<1L) return;
-        bukkitTask = Bukkit.getScheduler().runTaskTimerAsynchronously(Mechanics.getInstance(), () -> {
-            String renameTextAnvil = getAnvilInventoryInstance().getRenameText() == null ? "" : getAnvilInventoryInstance().getRenameText();
-            if(!renameTextAnvil.equals(renameText)){
-                onRenameTextAsync(renameText,renameTextAnvil);
-                for(BiConsumer<String,String> listener : renameTextAsyncListeners){
-                    listener.accept(renameText, renameTextAnvil);
-                }
-                renameText = renameTextAnvil;
-            }
-        },0L,ticksRefresh);
     }
 
     public String getRenameText(){
@@ -99,9 +129,7 @@ public class InvCustomAnvil extends InvCustom {
 
     public void handleClose1(CloseEvent closeEvent) {
         if(closeEvent.isCancelled()) return;
-        if(bukkitTask != null) {
-            bukkitTask.cancel();
-            bukkitTask = null;
-        }
+        anvilInventoryCustom.removeRenameListener();
+        cancelRenameTask();
     }
 }
@@ -0,0 +1,7 @@
+package dev.wuason.mechanics.invmechanic.types.pages.content;
+
+/**
+ * A content element placed in a page, with the slot it is rendered in and its absolute index in the content list.
+ */
+public record PageContentEntry<T>(int slot, int index, T content) {
+}
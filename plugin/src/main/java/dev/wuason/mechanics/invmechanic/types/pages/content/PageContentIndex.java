@@ -0,0 +1,58 @@
+package dev.wuason.mechanics.invmechanic.types.pages.content;
+
+import dev.wuason.mechanics.Mechanics;
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * The position of a content item, stored in its persistent data container as a fixed size byte array:
+ * index, slot and page, followed by the page id for the pages of an inventory with multiple pages.
+ */
+public record PageContentIndex(int index, int slot, int page, UUID pageId) {
+
+    public final static String NAMESPACED_CONTENT_KEY = "icm_content";
+    private static final int SIZE = Integer.BYTES * 3;
+    private static final int SIZE_WITH_ID = SIZE + Long.BYTES * 2;
+    private static NamespacedKey key;
+
+    public static NamespacedKey getKey() {
+        if (key == null) key = new NamespacedKey(Mechanics.getInstance(), NAMESPACED_CONTENT_KEY);
+        return key;
+    }
+
+    public static void write(ItemMeta itemMeta, int index, int slot, int page) {
+        write(itemMeta, index, slot, page, null);
+    }
+
+    public static void write(ItemMeta itemMeta, int index, int slot, int page, UUID pageId) {
+        ByteBuffer buffer = ByteBuffer.allocate(pageId == null ? SIZE : SIZE_WITH_ID).putInt(index).putInt(slot).putInt(page);
+        if (pageId != null) buffer.putLong(pageId.getMostSignificantBits()).putLong(pageId.getLeastSignificantBits());
+        itemMeta.getPersistentDataContainer().set(getKey(), PersistentDataType.BYTE_ARRAY, buffer.array());
+    }
+
+    /**
+     * Reads the position of a content item.
+     *
+     * @param itemStack The item.
+     * @return The position, or null if the item is not a content item.
+     */
+    public static PageContentIndex read(ItemStack itemStack) {
+        if (itemStack == null || !itemStack.hasItemMeta()) return null;
+        PersistentDataContainer container = itemStack.getItemMeta().getPersistentDataContainer();
+        if (!container.has(getKey(), PersistentDataType.BYTE_ARRAY)) return null;
+        byte[] data = container.get(getKey(), PersistentDataType.BYTE_ARRAY);
+        if (data == null || (data.length != SIZE && data.length != SIZE_WITH_ID)) return null;
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        int index = buffer.getInt();
+        int slot = buffer.getInt();
+        int page = buffer.getInt();
+        UUID pageId = data.length == SIZE_WITH_ID ? new UUID(buffer.getLong(), buffer.getLong()) : null;
+        return new PageContentIndex(index, slot, page, pageId);
+    }
+}
@@ -0,0 +1,103 @@
+package dev.wuason.mechanics.invmechanic.types.pages.content;
+
+import dev.wuason.mechanics.Mechanics;
+import org.bukkit.Bukkit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntSupplier;
+
+/**
+ * Supplies the content of paged inventories on demand, so the content does not need to be held in memory.
+ * <p>
+ * Sync providers are called on the main thread. Async providers are sliced with {@link #sliceAsync(int, int)},
+ * that by default calls {@link #slice(int, int)} on an async task, so {@link #slice(int, int)} must be thread safe;
+ * {@link #size()} is always called on the main thread and should be cheap.
+ *
+ * <pre>{@code
+ * PageDataProvider<Entry> provider = PageDataProvider.async(() -> repository.count(), (offset, limit) -> repository.find(offset, limit));
+ * }</pre>
+ */
+public interface PageDataProvider<T> {
+
+    int size();
+
+    /**
+     * Returns the elements from the offset, at most limit elements.
+     */
+    List<T> slice(int offset, int limit);
+
+    default boolean isAsync() {
+        return false;
+    }
+
+    default CompletableFuture<List<T>> sliceAsync(int offset, int limit) {
+        CompletableFuture<List<T>> future = new CompletableFuture<>();
+        Bukkit.getScheduler().runTaskAsynchronously(Mechanics.getInstance(), () -> {
+            try {
+                future.complete(slice(offset, limit));
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Creates a sync provider that reads the list without copying it.
+     */
+    static <T> PageDataProvider<T> of(List<T> list) {
+        return new PageDataProvider<T>() {
+            @Override
+            public int size() {
+                return list.size();
+            }
+
+            @Override
+            public List<T> slice(int offset, int limit) {
+                int end = Math.min(offset + limit, list.size());
+                if (offset < 0 || offset >= end) return List.of();
+                return new ArrayList<>(list.subList(offset, end));
+            }
+        };
+    }
+
+    static <T> PageDataProvider<T> sync(IntSupplier size, SliceFunction<T> slice) {
+        return new PageDataProvider<T>() {
+            @Override
+            public int size() {
+                return size.getAsInt();
+            }
+
+            @Override
+            public List<T> slice(int offset, int limit) {
+                return slice.slice(offset, limit);
+            }
+        };
+    }
+
+    static <T> PageDataProvider<T> async(IntSupplier size, SliceFunction<T> slice) {
+        return new PageDataProvider<T>() {
+            @Override
+            public int size() {
+                return size.getAsInt();
+            }
+
+            @Override
+            public List<T> slice(int offset, int limit) {
+                return slice.slice(offset, limit);
+            }
+
+            @Override
+            public boolean isAsync() {
+                return true;
+            }
+        };
+    }
+
+    @FunctionalInterface
+    interface SliceFunction<T> {
+        List<T> slice(int offset, int limit);
+    }
+}
@@ -0,0 +1,66 @@
+package dev.wuason.mechanics.invmechanic.types.pages.content;
+
+import dev.wuason.mechanics.Mechanics;
+import dev.wuason.mechanics.utils.AdventureUtils;
+import org.bukkit.Bukkit;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Renders the items of a page on an async task and hands them to the main thread, unless the job is cancelled first.
+ * <p>
+ * The renderer is called off the main thread, so it must only read the elements and build the items,
+ * without touching worlds, entities or inventories.
+ */
+public class PageRenderJob {
+
+    private volatile boolean cancelled = false;
+
+    private PageRenderJob() {
+    }
+
+    /**
+     * Starts rendering the elements.
+     *
+     * @param elements The elements of the page.
+     * @param renderer Builds the item of an element, called on an async task; a null item leaves the slot empty.
+     * @param apply    Receives the items in the order of the elements, called on the main thread if the job was not cancelled.
+     * @return The job.
+     */
+    public static <E> PageRenderJob render(List<E> elements, Function<E, ItemStack> renderer, Consumer<ItemStack[]> apply) {
+        PageRenderJob job = new PageRenderJob();
+        List<E> snapshot = new ArrayList<>(elements);
+        Bukkit.getScheduler().runTaskAsynchronously(Mechanics.getInstance(), () -> {
+            ItemStack[] items = new ItemStack[snapshot.size()];
+            for (int i = 0; i < items.length; i++) {
+                if (job.cancelled) return;
+                try {
+                    items[i] = renderer.apply(snapshot.get(i));
+                } catch (Throwable e) {
+                    AdventureUtils.sendMessagePluginConsole("<red>Could not render an item of a paged inventory: " + e.getMessage());
+                }
+            }
+            if (job.cancelled) return;
+            Bukkit.getScheduler().runTask(Mechanics.getInstance(), () -> {
+                if (!job.cancelled) apply.accept(items);
+            });
+        });
+        return job;
+    }
+
+    /**
+     * Stops the job, the items already rendered are discarded. It must be called from the main thread
+     * to be sure the items are not applied.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
@@ -0,0 +1,206 @@
+package dev.wuason.mechanics.invmechanic.types.pages.content;
+
+import dev.wuason.mechanics.Mechanics;
+import dev.wuason.mechanics.utils.AdventureUtils;
+import org.bukkit.Bukkit;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * Keeps a small window of the pages sliced from a {@link PageDataProvider}, with the items rendered for them,
+ * and loads the pages of async providers in the background. It must be used from the main thread.
+ * <p>
+ * Every method takes the page size, when it changes the window is invalidated. The pages the owner reports as
+ * pinned, such as the pages open or cached as inventories, are never evicted, so the contents of their slots can
+ * always be resolved.
+ */
+public class PageWindow<T> {
+
+    public static final int DEFAULT_SIZE = 5;
+
+    private final PageDataProvider<T> provider;
+    private final Map<Integer, Page<T>> pages;
+    // pages of an async provider being loaded, with the callbacks waiting for them
+    private final Map<Integer, List<Runnable>> loading = new HashMap<>();
+    private int pageSize = -1;
+    private int generation = 0;
+    private IntPredicate pinned = page -> false;
+
+    public PageWindow(PageDataProvider<T> provider) {
+        this(provider, DEFAULT_SIZE);
+    }
+
+    public PageWindow(PageDataProvider<T> provider, int windowSize) {
+        this.provider = provider;
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Page<T>> eldest) {
+                if (size() <= windowSize) return false;
+                if (!pinned.test(eldest.getKey())) return true;
+                // evicts the least recently used page that is not pinned, but never the page just added
+                Iterator<Map.Entry<Integer, Page<T>>> iterator = entrySet().iterator();
+                for (int i = size() - 1; i > 0; i--) {
+                    if (!pinned.test(iterator.next().getKey())) {
+                        iterator.remove();
+                        break;
+                    }
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Sets the pages that must stay in the window while the predicate accepts them, the window grows past its
+     * size if needed.
+     */
+    public void setPinned(IntPredicate pinned) {
+        this.pinned = pinned == null ? page -> false : pinned;
+    }
+
+    public PageDataProvider<T> getProvider() {
+        return provider;
+    }
+
+    /**
+     * Returns the elements of the page, slicing sync providers when the page is not in the window.
+     *
+     * @return The elements, or null while the page of an async provider is loading.
+     */
+    public List<T> getSlice(int page, int pageSize) {
+        checkPageSize(pageSize);
+        Page<T> loaded = pages.get(page);
+        if (loaded != null) return loaded.slice;
+        if (provider.isAsync()) {
+            load(page, null);
+            return null;
+        }
+        List<T> slice = provider.slice(page * pageSize, pageSize);
+        Page<T> sliced = new Page<>(slice == null ? List.of() : slice);
+        pages.put(page, sliced);
+        return sliced.slice;
+    }
+
+    public boolean isLoaded(int page, int pageSize) {
+        checkPageSize(pageSize);
+        return pages.containsKey(page);
+    }
+
+    /**
+     * Runs the callback once the page is loaded, right away if it is already or the provider is sync.
+     */
+    public void whenLoaded(int page, int pageSize, Runnable callback) {
+        if (getSlice(page, pageSize) != null) {
+            callback.run();
+            return;
+        }
+        load(page, callback);
+    }
+
+    /**
+     * Loads the pages next to the given one in the background, only for async providers.
+     */
+    public void prefetch(int page, int pageSize) {
+        checkPageSize(pageSize);
+        if (!provider.isAsync()) return;
+        if (page > 0 && !pages.containsKey(page - 1)) load(page - 1, null);
+        if ((page + 1) * pageSize < provider.size() && !pages.containsKey(page + 1)) load(page + 1, null);
+    }
+
+    /**
+     * Returns the element at the absolute index if its page is in the window, slicing sync providers otherwise.
+     * The pages of async providers are only in the window once loaded, and stay while pinned.
+     *
+     * @return The element, or null if it is not loaded or the index is out of bounds.
+     */
+    public T get(int index, int pageSize) {
+        if (index < 0 || pageSize <= 0) return null;
+        checkPageSize(pageSize);
+        int page = index / pageSize;
+        Page<T> loaded = pages.get(page);
+        List<T> slice = loaded != null ? loaded.slice : provider.isAsync() ? null : getSlice(page, pageSize);
+        int offset = index % pageSize;
+        if (slice == null || offset >= slice.size()) return null;
+        return slice.get(offset);
+    }
+
+    public ItemStack[] getRendered(int page, int pageSize) {
+        checkPageSize(pageSize);
+        Page<T> loaded = pages.get(page);
+        return loaded == null ? null : loaded.rendered;
+    }
+
+    public void setRendered(int page, int pageSize, ItemStack[] rendered) {
+        checkPageSize(pageSize);
+        Page<T> loaded = pages.get(page);
+        if (loaded != null) loaded.rendered = rendered;
+    }
+
+    /**
+     * Drops a page of the window.
+     */
+    public void invalidate(int page) {
+        pages.remove(page);
+    }
+
+    /**
+     * Drops every page of the window, the pages being loaded are requested again.
+     */
+    public void invalidate() {
+        generation++;
+        pages.clear();
+        Map<Integer, List<Runnable>> waiting = new HashMap<>(loading);
+        loading.clear();
+        waiting.forEach((page, callbacks) -> {
+            if (callbacks.isEmpty()) return;
+            for (Runnable callback : callbacks) load(page, callback);
+        });
+    }
+
+    private void checkPageSize(int pageSize) {
+        if (this.pageSize == pageSize) return;
+        this.pageSize = pageSize;
+        invalidate();
+    }
+
+    private void load(int page, Runnable callback) {
+        List<Runnable> callbacks = loading.get(page);
+        if (callbacks == null) {
+            callbacks = new ArrayList<>();
+            loading.put(page, callbacks);
+            int generation = this.generation;
+            provider.sliceAsync(page * pageSize, pageSize).whenComplete((slice, throwable) -> Bukkit.getScheduler().runTask(Mechanics.getInstance(), () -> {
+                if (generation != this.generation) return;
+                List<Runnable> waiting = loading.remove(page);
+                if (throwable != null) {
+                    AdventureUtils.sendMessagePluginConsole("<red>Could not load the page " + page + " of a paged inventory: " + throwable.getMessage());
+                    // the waiting callbacks see an empty page so the viewers leave the loading state, then the page
+                    // is dropped to be requested again the next time it is shown
+                    pages.put(page, new Page<>(List.of()));
+                    if (waiting != null) waiting.forEach(Runnable::run);
+                    pages.remove(page);
+                    return;
+                }
+                pages.put(page, new Page<>(slice == null ? List.of() : slice));
+                if (waiting != null) waiting.forEach(Runnable::run);
+            }));
+        }
+        if (callback != null) callbacks.add(callback);
+    }
+
+    private static class Page<T> {
+        private final List<T> slice;
+        private ItemStack[] rendered;
+
+        private Page(List<T> slice) {
+            this.slice = slice;
+        }
+    }
+}
@@ -4,6 +4,8 @@ import dev.wuason.mechanics.Mechanics;
 import dev.wuason.mechanics.invmechanic.events.CloseEvent;
 import dev.wuason.mechanics.invmechanic.items.ItemInterface;
 import dev.wuason.mechanics.invmechanic.types.InvCustomAnvil;
+import dev.wuason.mechanics.invmechanic.types.pages.content.PageContentEntry;
+import dev.wuason.mechanics.invmechanic.types.pages.content.PageContentIndex;
 import dev.wuason.mechanics.invmechanic.types.pages.content.anvil.events.ContentClickAnvilEvent;
 import dev.wuason.mechanics.invmechanic.types.pages.content.anvil.events.NextPageEvent;
 import dev.wuason.mechanics.invmechanic.types.pages.content.anvil.events.PreviousPageEvent;
@@ -12,18 +14,18 @@ import dev.wuason.mechanics.invmechanic.types.pages.content.anvil.items.Previous
 import dev.wuason.mechanics.items.ItemBuilder;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
-import org.bukkit.NamespacedKey;
 import org.bukkit.entity.Player;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
-import org.bukkit.persistence.PersistentDataType;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 public class InvCustomPagesAnvil<T> extends InvCustomAnvil {
     private Player player;
@@ -31,11 +33,16 @@ public class InvCustomPagesAnvil<T> extends InvCustomAnvil {
     private List<Integer> dataSlots;
     private List<T> contentList;
     private List<T> searchList = new ArrayList<>();
+    private Function<T, String> searchKey = null;
+    private SearchIndex<T> searchIndex = null;
+    private SearchIndex.Result lastSearch = null;
+    private final AtomicInteger searchSequence = new AtomicInteger();
+    private BiConsumer<String, String> liveSearchListener = null;
     private ItemInterface itemNextPage;
     private ItemInterface itemPreviousPage;
     private ItemStack itemStackRename;
     private int page = 0;
-    public final static String NAMESPACED_CONTENT_KEY = "icm_content";
+    public final static String NAMESPACED_CONTENT_KEY = PageContentIndex.NAMESPACED_CONTENT_KEY;
 
     //listeners
     private List<Consumer<ContentClickAnvilEvent<T>>> contentClickListeners = new ArrayList<>();
@@ -129,6 +136,16 @@ public class InvCustomPagesAnvil<T> extends InvCustomAnvil {
     public T onContentSearch(String search, T content){
         return content;
     }
+    /**
+     * Called on the main thread when the results of {@link #searchAsync(String)} are applied,
+     * by default it shows the first page of the results if the anvil is open.
+     */
+    public void onSearchApplied(String search){
+        if(player.getOpenInventory().getTopInventory().getHolder() != this) return;
+        this.page = 0;
+        setContent(0);
+        setButtonsPage(0);
+    }
 
     //********** SEARCH **********
 
@@ -148,34 +165,98 @@ public class InvCustomPagesAnvil<T> extends InvCustomAnvil {
         searchList.clear();
     }
 
+    /**
+     * Searches the content by the key of each element with an index built once, instead of calling
+     * {@link #onContentSearch(String, Object)} for every element. Null goes back to onContentSearch.
+     */
+    public void setSearchKey(Function<T, String> searchKey){
+        this.searchKey = searchKey;
+        invalidateSearchIndex();
+    }
+
+    public Function<T, String> getSearchKey() {
+        return searchKey;
+    }
+
+    /**
+     * Drops the search index, it is built again with the next search. Call it when the content changed.
+     */
+    public void invalidateSearchIndex(){
+        searchIndex = null;
+        lastSearch = null;
+    }
+
+    public SearchIndex<T> getSearchIndex(){
+        if(searchIndex == null && searchKey != null) searchIndex = new SearchIndex<>(contentList, searchKey);
+        return searchIndex;
+    }
+
     public void search(){
-        searchList.clear();
-        String search = getRenameText();
-        for(T content : contentList){
-            T c = onContentSearch(search, content);
-            if(c == null) continue;
-            searchList.add(c);
-        }
+        search(getRenameText());
     }
+    /**
+     * Searches on the calling thread, the pending results of {@link #searchAsync(String)} are dropped.
+     */
     public void search(String search){
-        searchList.clear();
-        for(T content : contentList){
+        searchSequence.incrementAndGet();
+        SearchIndex<T> index = getSearchIndex();
+        if(index != null){
+            lastSearch = index.search(search, lastSearch);
+            searchList = new ArrayList<>(index.getElements(lastSearch));
+            return;
+        }
+        searchList = searchContent(search, contentList);
+    }
+
+    private List<T> searchContent(String search, List<T> contents){
+        List<T> results = new ArrayList<>();
+        for(T content : contents){
             T c = onContentSearch(search, content);
             if(c == null) continue;
-            searchList.add(c);
+            results.add(c);
         }
+        return results;
     }
+
     public void searchAsync(){
-        Bukkit.getScheduler().runTaskAsynchronously(Mechanics.getInstance(), () -> {
-            search();
-        });
+        searchAsync(getRenameText());
     }
+
+    /**
+     * Searches off the main thread and applies the results on the main thread, calling {@link #onSearchApplied(String)}.
+     * Results of a search started before the last one, sync or async, are dropped.
+     */
     public void searchAsync(String search){
+        int sequence = searchSequence.incrementAndGet();
+        SearchIndex<T> index = getSearchIndex();
+        SearchIndex.Result previous = lastSearch;
+        List<T> contents = index == null ? new ArrayList<>(contentList) : null;
         Bukkit.getScheduler().runTaskAsynchronously(Mechanics.getInstance(), () -> {
-            search(search);
+            SearchIndex.Result result = index == null ? null : index.search(search, previous);
+            List<T> results = index == null ? searchContent(search, contents) : new ArrayList<>(index.getElements(result));
+            Bukkit.getScheduler().runTask(Mechanics.getInstance(), () -> {
+                if(sequence != searchSequence.get()) return;
+                if(index != null && index == searchIndex) lastSearch = result;
+                searchList = results;
+                onSearchApplied(search);
+            });
         });
     }
 
+    /**
+     * Searches the rename text while the player types it, once it stops changing for the given ticks.
+     *
+     * @param debounceTicks the debounce delay in ticks, less than 1 disables the live search
+     */
+    public void setLiveSearch(long debounceTicks){
+        if(liveSearchListener != null) removeRenameTextListener(liveSearchListener);
+        liveSearchListener = null;
+        if(debounceTicks < 1L) return;
+        liveSearchListener = (before, now) -> searchAsync(now);
+        addRenameTextListener(liveSearchListener);
+        setRenameTextListener(debounceTicks);
+    }
+
     public List<T> getSearchList() {
         return searchList;
     }
@@ -214,20 +295,14 @@ public class InvCustomPagesAnvil<T> extends InvCustomAnvil {
 
 
     public void handleClick1(InventoryClickEvent event) {
-        if(event.getCurrentItem() == null || event.getCurrentItem().getItemMeta() == null) return;
-        if(event.getCurrentItem().getItemMeta().getPersistentDataContainer().has(new NamespacedKey(Mechanics.getInstance(), NAMESPACED_CONTENT_KEY), PersistentDataType.STRING)){
-            event.setCancelled(true);
-            String data = event.getCurrentItem().getItemMeta().getPersistentDataContainer().get(new NamespacedKey(Mechanics.getInstance(), NAMESPACED_CONTENT_KEY), PersistentDataType.STRING);
-            String[] split = data.split(":");
-            int index = Integer.parseInt(split[0]);
-            int slot = Integer.parseInt(split[1]);
-            int page = Integer.parseInt(split[2]);
-            T content = searchList.get(index);
-            ContentClickAnvilEvent<T> contentClickAnvilEvent = new ContentClickAnvilEvent<T>(event, content, slot, page);
-            onContentClick(contentClickAnvilEvent);
-            contentClickListeners.forEach(contentClickAnvilEventConsumer -> contentClickAnvilEventConsumer.accept(contentClickAnvilEvent));
-
-        }
+        PageContentIndex contentIndex = PageContentIndex.read(event.getCurrentItem());
+        if(contentIndex == null) return;
+        event.setCancelled(true);
+        if(contentIndex.index() < 0 || contentIndex.index() >= searchList.size()) return;
+        T content = searchList.get(contentIndex.index());
+        ContentClickAnvilEvent<T> contentClickAnvilEvent = new ContentClickAnvilEvent<T>(event, content, contentIndex.slot(), contentIndex.page());
+        onContentClick(contentClickAnvilEvent);
+        contentClickListeners.forEach(contentClickAnvilEventConsumer -> contentClickAnvilEventConsumer.accept(contentClickAnvilEvent));
     }
 
     //********** CONTENT **********
@@ -238,19 +313,22 @@ public class InvCustomPagesAnvil<T> extends InvCustomAnvil {
 
     public void setContentList(List<T> contentList) {
         this.contentList = contentList;
+        invalidateSearchIndex();
     }
 
     public void addContent(T content){
         contentList.add(content);
+        invalidateSearchIndex();
     }
 
     public void removeContent(T content){
         contentList.remove(content);
+        invalidateSearchIndex();
     }
 
     public void clearContent(int page){
-        for(Map.Entry<Integer, T> entry : getContentPage(page).entrySet()){
-            player.getInventory().setItem(entry.getKey(), null);
+        for(PageContentEntry<T> entry : getContentPageEntries(page)){
+            player.getInventory().setItem(entry.slot(), null);
         }
     }
 
@@ -334,48 +412,62 @@ public class InvCustomPagesAnvil<T> extends InvCustomAnvil {
         return contentPage;
     }
 
+    /**
+     * Returns the search results for a specific page in the order of the data slots, each element with its slot
+     * and its absolute index in the search list.
+     */
+    public List<PageContentEntry<T>> getContentPageEntries(int page){
+        int start = page * dataSlots.size();
+        int end = Math.min(start + dataSlots.size(), searchList.size());
+        if(start < 0 || start >= end) return new ArrayList<>();
+        List<PageContentEntry<T>> entries = new ArrayList<>(end - start);
+        for(int i = start; i < end; i++){
+            entries.add(new PageContentEntry<>(dataSlots.get(i - start), i, searchList.get(i)));
+        }
+        return entries;
+    }
+
     public ItemStack getItemStackRename() {
         return itemStackRename;
     }
 
     public void setContent(int page){
         clearDataSlots();
-        for(Map.Entry<Integer, T> entry : getContentPage(page).entrySet()){
-            ItemStack itemStack = onContentPage(page, entry.getKey(), entry.getValue());
-            if(itemStack == null || itemStack.getItemMeta() == null) itemStack = new ItemBuilder(Material.BOOK).setName(entry.getValue().toString()).build();
+        for(PageContentEntry<T> entry : getContentPageEntries(page)){
+            ItemStack itemStack = onContentPage(page, entry.slot(), entry.content());
+            if(itemStack == null || itemStack.getItemMeta() == null) itemStack = new ItemBuilder(Material.BOOK).setName(entry.content().toString()).build();
             ItemMeta itemMeta = itemStack.getItemMeta();
-            String data = searchList.indexOf(entry.getValue()) + ":" + entry.getKey() + ":" + page;
-            itemMeta.getPersistentDataContainer().set(new NamespacedKey(Mechanics.getInstance(), NAMESPACED_CONTENT_KEY), PersistentDataType.STRING, data);
+            PageContentIndex.write(itemMeta, entry.index(), entry.slot(), page);
             itemStack.setItemMeta(itemMeta);
-            player.getInventory().setItem(entry.getKey(), itemStack);
+            player.getInventory().setItem(entry.slot(), itemStack);
         }
     }
     //************** ITEM INTERFACE **************
     //******* Set & Remove ********
 
     public void setItemInterfaceInvPlayer(ItemInterface itemInterface) {
-        player.getInventory().setItem(itemInterface.getSlot(), itemInterface.getItemModified());
+        player.getInventory().setItem(itemInterface.getSlot(), itemInterface.getCachedItemModified());
     }
 
     public void setItemInterfaceInvPlayer(ItemInterface[] itemInterfaces){
         for(ItemInterface itemInterface : itemInterfaces){
-            player.getInventory().setItem(itemInterface.getSlot(), itemInterface.getItemModified());
+            player.getInventory().setItem(itemInterface.getSlot(), itemInterface.getCachedItemModified());
         }
     }
 
     public void setItemInterfaceInvPlayer(ItemInterface item, int slot){
-        player.getInventory().setItem(slot, item.getItemModified());
+        player.getInventory().setItem(slot, item.getCachedItemModified());
     }
     //ARRAY only slots
     public void setItemInterfaceInvPlayer(ItemInterface item, int[] slots){
         for(int slot : slots){
-            player.getInventory().setItem(slot, item.getItemModified());
+            player.getInventory().setItem(slot, item.getCachedItemModified());
         }
     }
 
     public void setItemInterfaceInvPlayer(String id){
         if(!existItemInterface(id)) return;
-        player.getInventory().setItem(getItemInterfaces().get(id).getSlot(), getItemInterfaces().get(id).getItemModified());
+        player.getInventory().setItem(getItemInterfaces().get(id).getSlot(), getItemInterfaces().get(id).getCachedItemModified());
     }
 
     public void removeItemInterfaceInvPlayer(String id){
@@ -402,10 +494,10 @@ public class InvCustomPagesAnvil<T> extends InvCustomAnvil {
             player.getInventory().setItem(getItemNext().getSlot(), null);
         }
         if(page > getMinPage() ) {
-            player.getInventory().setItem(getItemBack().getSlot(), getItemBack().getItemModified());
+            player.getInventory().setItem(getItemBack().getSlot(), getItemBack().getCachedItemModified());
         }
         if(page < getMaxPage() ) {
-            player.getInventory().setItem(getItemNext().getSlot(), getItemNext().getItemModified());
+            player.getInventory().setItem(getItemNext().getSlot(), getItemNext().getCachedItemModified());
         }
     }
     public void removeButtonsPage() {
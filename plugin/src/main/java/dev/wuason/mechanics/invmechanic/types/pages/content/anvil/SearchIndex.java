@@ -0,0 +1,164 @@
+package dev.wuason.mechanics.invmechanic.types.pages.content.anvil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A case insensitive substring index over a search key of every element, built once with the trigrams of the keys.
+ * <p>
+ * Queries of three or more characters only check the elements that have every trigram of the query, and a query
+ * that contains the previous one only checks the previous results. The index is immutable, so it can be searched
+ * from any thread.
+ */
+public class SearchIndex<T> {
+
+    private static final int GRAM = 3;
+    private static final int[] EMPTY = new int[0];
+
+    private final List<T> elements;
+    private final String[] keys;
+    private final Map<String, int[]> grams;
+
+    public SearchIndex(Collection<T> elements, Function<T, String> keyFunction) {
+        this.elements = Collections.unmodifiableList(new ArrayList<>(elements));
+        this.keys = new String[this.elements.size()];
+        Map<String, IntArray> building = new HashMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            String key = keyFunction.apply(this.elements.get(i));
+            key = key == null ? "" : key.toLowerCase(Locale.ROOT);
+            keys[i] = key;
+            for (int j = 0; j + GRAM <= key.length(); j++) {
+                building.computeIfAbsent(key.substring(j, j + GRAM), gram -> new IntArray()).addOnce(i);
+            }
+        }
+        Map<String, int[]> grams = new HashMap<>(building.size() * 2);
+        building.forEach((gram, indices) -> grams.put(gram, indices.toArray()));
+        this.grams = grams;
+    }
+
+    public int size() {
+        return elements.size();
+    }
+
+    public List<T> getElements() {
+        return elements;
+    }
+
+    public Result search(String query) {
+        return search(query, null);
+    }
+
+    /**
+     * Searches the elements whose key contains the query.
+     *
+     * @param query    The query.
+     * @param previous The result of the previous query, only used if the new query contains it.
+     * @return The result.
+     */
+    public Result search(String query, Result previous) {
+        String q = query == null ? "" : query.toLowerCase(Locale.ROOT);
+        if (q.isEmpty()) return new Result(this, q, null);
+        int[] candidates = null;
+        if (previous != null && previous.index == this && q.contains(previous.query)) candidates = previous.indices;
+        if (q.length() >= GRAM) {
+            int[] gramCandidates = candidatesOf(q);
+            if (candidates == null || gramCandidates.length < candidates.length) candidates = gramCandidates;
+        }
+        int count = candidates == null ? keys.length : candidates.length;
+        int[] result = new int[count];
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            int index = candidates == null ? i : candidates[i];
+            if (keys[index].contains(q)) result[size++] = index;
+        }
+        return new Result(this, q, size == count ? result : Arrays.copyOf(result, size));
+    }
+
+    public List<T> getElements(Result result) {
+        if (result.indices == null) return elements;
+        List<T> list = new ArrayList<>(result.indices.length);
+        for (int index : result.indices) list.add(elements.get(index));
+        return list;
+    }
+
+    private int[] candidatesOf(String query) {
+        Set<String> queryGrams = new LinkedHashSet<>();
+        for (int j = 0; j + GRAM <= query.length(); j++) queryGrams.add(query.substring(j, j + GRAM));
+        List<int[]> postings = new ArrayList<>(queryGrams.size());
+        for (String gram : queryGrams) {
+            int[] indices = grams.get(gram);
+            if (indices == null) return EMPTY;
+            postings.add(indices);
+        }
+        postings.sort((a, b) -> Integer.compare(a.length, b.length));
+        int[] candidates = postings.get(0);
+        for (int i = 1; i < postings.size() && candidates.length > 0; i++) {
+            candidates = intersect(candidates, postings.get(i));
+        }
+        return candidates;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, size = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else {
+                result[size++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * The elements matched by a query, as indices of the index it was searched in.
+     */
+    public static final class Result {
+        private final SearchIndex<?> index;
+        private final String query;
+        // null when every element matches
+        private final int[] indices;
+
+        private Result(SearchIndex<?> index, String query, int[] indices) {
+            this.index = index;
+            this.query = query;
+            this.indices = indices;
+        }
+
+        public String getQuery() {
+            return query;
+        }
+
+        public int size() {
+            return indices == null ? index.size() : indices.length;
+        }
+    }
+
+    private static final class IntArray {
+        private int[] values = new int[4];
+        private int size = 0;
+
+        // indices are added in increasing order, so a repeated index is always the last one
+        private void addOnce(int value) {
+            if (size > 0 && values[size - 1] == value) return;
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
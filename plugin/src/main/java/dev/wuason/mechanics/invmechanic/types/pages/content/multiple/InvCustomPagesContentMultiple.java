@@ -1,19 +1,19 @@
 package dev.wuason.mechanics.invmechanic.types.pages.content.multiple;
 
-import dev.wuason.mechanics.Mechanics;
 import dev.wuason.mechanics.invmechanic.types.InvCustom;
+import dev.wuason.mechanics.invmechanic.types.pages.content.PageContentEntry;
+import dev.wuason.mechanics.invmechanic.types.pages.content.PageContentIndex;
+import dev.wuason.mechanics.invmechanic.types.pages.content.PageRenderJob;
 import dev.wuason.mechanics.invmechanic.types.pages.content.multiple.events.ContentMultipleClickEvent;
 import dev.wuason.mechanics.invmechanic.types.pages.content.multiple.events.NextPageMultipleEvent;
 import dev.wuason.mechanics.invmechanic.types.pages.content.multiple.events.PreviousPageMultipleEvent;
 import dev.wuason.mechanics.items.ItemBuilder;
 import org.bukkit.Material;
-import org.bukkit.NamespacedKey;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.event.inventory.InventoryType;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
-import org.bukkit.persistence.PersistentDataType;
 
 import java.util.*;
 import java.util.function.Function;
@@ -23,7 +23,10 @@ public class InvCustomPagesContentMultiple extends InvCustom {
 
     private List<PageCustomInfo<?>> customPages = new ArrayList<>();
     private HashMap<UUID, PageCustomInfo<?>> customPagesInfo = new HashMap<>();
-    public final static String NAMESPACED_CONTENT_KEY = "icm_content";
+    public final static String NAMESPACED_CONTENT_KEY = PageContentIndex.NAMESPACED_CONTENT_KEY;
+    private boolean asyncRender = false;
+    private ItemStack renderingItem = new ItemBuilder(Material.LIGHT_GRAY_STAINED_GLASS_PANE).setName("Rendering...").build();
+    private final HashMap<UUID, PageRenderJob> renderJobs = new HashMap<>();
 
 
 
@@ -83,17 +86,65 @@ public class InvCustomPagesContentMultiple extends InvCustom {
     //******************** CONTENT ********************
 
     public void setContentPage(PageCustomInfo<?> page) {
-        page.clearDataSlots(this);
-        for(Map.Entry<Integer, ?> entry : page.getActualPageContent().entrySet()){
-            Content content = new Content(entry.getValue(), page);
-            ItemStack item = onContentPage(content);
-            if(item == null) item = new ItemBuilder(Material.BOOK).setName(entry.getValue().toString()).build();
-            ItemMeta itemMeta = item.getItemMeta();
-            String data = page.getContentList().indexOf(entry.getValue()) + ":" + page.getId().toString() + ":" + page.getActualPage() + ":" + entry.getKey();
-            itemMeta.getPersistentDataContainer().set(new NamespacedKey(Mechanics.getInstance(), NAMESPACED_CONTENT_KEY), PersistentDataType.STRING, data);
-            item.setItemMeta(itemMeta);
-            super.getInventory().setItem(entry.getKey(), item);
+        cancelRender(page.getId());
+        int actualPage = page.getActualPage();
+        if(!page.isActualPageLoaded()){
+            InvCustom.Update update = beginUpdate();
+            for(int slot : page.getDataSlots()){
+                update.set(slot, page.getPlaceholderItem());
+            }
+            update.apply();
+            page.whenActualPageLoaded(() -> {
+                if(page.getActualPage() != actualPage || this.customPagesInfo.get(page.getId()) != page) return;
+                setContentAndButtons(page);
+            });
+            return;
         }
+        List<PageContentEntry<?>> entries = new ArrayList<>(page.getActualPageContentEntries());
+        if(asyncRender){
+            InvCustom.Update update = beginUpdate();
+            for(int slot : page.getDataSlots()){
+                update.clear(slot);
+            }
+            for(PageContentEntry<?> entry : entries){
+                update.set(entry.slot(), renderingItem);
+            }
+            update.apply();
+            renderJobs.put(page.getId(), PageRenderJob.render(entries, entry -> renderContent(page, actualPage, entry), rendered -> {
+                renderJobs.remove(page.getId());
+                if(page.getActualPage() != actualPage || this.customPagesInfo.get(page.getId()) != page) return;
+                setRenderedContent(page, entries, rendered);
+            }));
+            page.prefetch();
+            return;
+        }
+        ItemStack[] rendered = new ItemStack[entries.size()];
+        for(int i = 0; i < rendered.length; i++){
+            rendered[i] = renderContent(page, actualPage, entries.get(i));
+        }
+        setRenderedContent(page, entries, rendered);
+        page.prefetch();
+    }
+
+    private ItemStack renderContent(PageCustomInfo<?> page, int actualPage, PageContentEntry<?> entry) {
+        Content content = new Content(entry.content(), page);
+        ItemStack item = onContentPage(content);
+        if(item == null) item = new ItemBuilder(Material.BOOK).setName(entry.content().toString()).build();
+        ItemMeta itemMeta = item.getItemMeta();
+        PageContentIndex.write(itemMeta, entry.index(), entry.slot(), actualPage, page.getId());
+        item.setItemMeta(itemMeta);
+        return item;
+    }
+
+    private void setRenderedContent(PageCustomInfo<?> page, List<PageContentEntry<?>> entries, ItemStack[] rendered) {
+        InvCustom.Update update = beginUpdate();
+        for(int slot : page.getDataSlots()){
+            update.clear(slot);
+        }
+        for(int i = 0; i < rendered.length; i++){
+            update.set(entries.get(i).slot(), rendered[i]);
+        }
+        update.apply();
     }
 
     public void setContentAndButtons(PageCustomInfo<?> page) {
@@ -101,8 +152,44 @@ public class InvCustomPagesContentMultiple extends InvCustom {
         page.setButtonsPage(this);
     }
 
+    //******************** ASYNC RENDER ********************
+
+    public boolean isAsyncRender() {
+        return asyncRender;
+    }
+
+    /**
+     * Renders the content items on an async task, showing the rendering item in their slots until they are ready.
+     * {@link #onContentPage(Content)} is then called off the main thread, so it must only build the item.
+     */
+    public void setAsyncRender(boolean asyncRender) {
+        this.asyncRender = asyncRender;
+    }
+
+    public ItemStack getRenderingItem() {
+        return renderingItem;
+    }
+
+    /**
+     * Sets the item shown in the content slots while their items are rendered.
+     */
+    public void setRenderingItem(ItemStack renderingItem) {
+        this.renderingItem = renderingItem;
+    }
+
+    /**
+     * Cancels the render of a page that is not applied yet.
+     */
+    public void cancelRender(UUID pageId) {
+        PageRenderJob job = renderJobs.remove(pageId);
+        if(job != null) job.cancel();
+    }
+
     //******************** EVENTS ********************
 
+    /**
+     * Renders the item of a content, with async rendering it is called off the main thread.
+     */
     public ItemStack onContentPage(Content content){
         return null;
     }
@@ -116,17 +203,28 @@ public class InvCustomPagesContentMultiple extends InvCustom {
     //******************** HANDLE CLICK ********************
 
     public void handleClick1(InventoryClickEvent event){
-        if(event.getCurrentItem() == null || event.getCurrentItem().getItemMeta() == null) return;
-        if(event.getCurrentItem().getItemMeta().getPersistentDataContainer().has(new NamespacedKey(Mechanics.getInstance(), NAMESPACED_CONTENT_KEY), PersistentDataType.STRING)){
-            String data = event.getCurrentItem().getItemMeta().getPersistentDataContainer().get(new NamespacedKey(Mechanics.getInstance(), NAMESPACED_CONTENT_KEY), PersistentDataType.STRING);
-            String[] args = data.split(":");
-            int slot = Integer.parseInt(args[3]);
-            UUID id = UUID.fromString(args[1]);
-            int page = Integer.parseInt(args[2]);
-            PageCustomInfo<?> pageCustomInfo = this.customPagesInfo.get(id);
-            Object content = pageCustomInfo.getContentList().get(Integer.parseInt(args[0]));
-            ContentMultipleClickEvent contentClickEvent = new ContentMultipleClickEvent(slot, page, pageCustomInfo, content, event);
-            onContentClick(contentClickEvent);
+        PageContentIndex contentIndex = PageContentIndex.read(event.getCurrentItem());
+        if(contentIndex == null){
+            //placeholders of a loading or rendering page
+            if(isPlaceholder(event.getRawSlot(), event.getCurrentItem())) event.setCancelled(true);
+            return;
+        }
+        if(contentIndex.pageId() == null) return;
+        PageCustomInfo<?> pageCustomInfo = this.customPagesInfo.get(contentIndex.pageId());
+        if(pageCustomInfo == null) return;
+        Object content = pageCustomInfo.getContent(contentIndex.index());
+        if(content == null) return;
+        ContentMultipleClickEvent contentClickEvent = new ContentMultipleClickEvent(contentIndex.slot(), contentIndex.page(), pageCustomInfo, content, event);
+        onContentClick(contentClickEvent);
+    }
+
+    private boolean isPlaceholder(int rawSlot, ItemStack itemStack){
+        if(itemStack == null || rawSlot >= getInventory().getSize()) return false;
+        for(PageCustomInfo<?> page : customPages){
+            if(!page.getDataSlots().contains(rawSlot)) continue;
+            if(page.getPlaceholderItem() != null && page.getPlaceholderItem().isSimilar(itemStack)) return true;
+            if(asyncRender && renderingItem.isSimilar(itemStack)) return true;
         }
+        return false;
     }
 }
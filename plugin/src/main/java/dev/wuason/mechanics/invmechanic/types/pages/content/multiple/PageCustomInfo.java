@@ -1,9 +1,15 @@
 package dev.wuason.mechanics.invmechanic.types.pages.content.multiple;
 
 import dev.wuason.mechanics.invmechanic.items.ItemInterface;
+import dev.wuason.mechanics.invmechanic.types.pages.content.PageContentEntry;
+import dev.wuason.mechanics.invmechanic.types.pages.content.PageDataProvider;
+import dev.wuason.mechanics.invmechanic.types.pages.content.PageWindow;
 import dev.wuason.mechanics.invmechanic.types.pages.content.multiple.items.NextPageItem;
 import dev.wuason.mechanics.invmechanic.types.pages.content.multiple.items.PreviousPageItem;
 import dev.wuason.mechanics.invmechanic.types.InvCustom;
+import dev.wuason.mechanics.items.ItemBuilder;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -15,6 +21,9 @@ public class PageCustomInfo<T> {
     private UUID id;
     private List<Integer> dataSlots = new ArrayList<>();
     private List<T> contentList = new ArrayList<>();
+    private PageDataProvider<T> dataProvider = null;
+    private PageWindow<T> pageWindow = null;
+    private ItemStack placeholderItem = new ItemBuilder(Material.GRAY_STAINED_GLASS_PANE).buildWithVoidName();
     private ItemInterface itemBack;
     private ItemInterface itemNext;
 
@@ -78,8 +87,9 @@ public class PageCustomInfo<T> {
     }
 
     public int getMaxPage() {
-        int a = contentList.size() / dataSlots.size();
-        if(contentList.size() % dataSlots.size() != 0){
+        int size = getContentSize();
+        int a = size / dataSlots.size();
+        if(size % dataSlots.size() != 0){
             a++;
         }
         return a - 1 == -1 ? 0 : a - 1;
@@ -117,24 +127,44 @@ public class PageCustomInfo<T> {
     }
     public boolean isPossibleNextPage(){
         int a = (page * dataSlots.size()) + dataSlots.size();
-        return a < contentList.size();
+        return a < getContentSize();
     }
     public boolean isPossiblePreviousPage(){
         return page > 0;
     }
     public HashMap<Integer, T> getActualPageContent(){
         HashMap<Integer, T> actualPageContent = new HashMap<>();
-        int a = page * dataSlots.size();
-        for(int i : dataSlots ){
-            if(a >= contentList.size()){
-                break;
-            }
-            actualPageContent.put(dataSlots.get(i), contentList.get(a));
-            a++;
+        for(PageContentEntry<T> entry : getActualPageContentEntries()){
+            actualPageContent.put(entry.slot(), entry.content());
         }
         return actualPageContent;
     }
 
+    /**
+     * Returns the content of the actual page in the order of the data slots, each element with its slot
+     * and its absolute index in the content list.
+     */
+    public List<PageContentEntry<T>> getActualPageContentEntries(){
+        int start = page * dataSlots.size();
+        if(pageWindow != null){
+            List<T> slice = start < 0 ? null : pageWindow.getSlice(page, dataSlots.size());
+            if(slice == null) return new ArrayList<>();
+            int size = Math.min(slice.size(), dataSlots.size());
+            List<PageContentEntry<T>> entries = new ArrayList<>(size);
+            for(int i = 0; i < size; i++){
+                entries.add(new PageContentEntry<>(dataSlots.get(i), start + i, slice.get(i)));
+            }
+            return entries;
+        }
+        int end = Math.min(start + dataSlots.size(), contentList.size());
+        if(start < 0 || start >= end) return new ArrayList<>();
+        List<PageContentEntry<T>> entries = new ArrayList<>(end - start);
+        for(int i = start; i < end; i++){
+            entries.add(new PageContentEntry<>(dataSlots.get(i - start), i, contentList.get(i)));
+        }
+        return entries;
+    }
+
     public HashMap<Integer, T> getPageContent(int page){
         if(page >= getMaxPage() || page < 0) return null;
         HashMap<Integer, T> actualPageContent = new HashMap<>();
@@ -149,13 +179,85 @@ public class PageCustomInfo<T> {
         return actualPageContent;
     }
 
+    //******************** DATA PROVIDER ********************
+
+    public PageDataProvider<T> getDataProvider() {
+        return dataProvider;
+    }
+
+    /**
+     * Slices the pages from a data provider instead of the content list, keeping only a small window of
+     * pages. Null goes back to the content list.
+     */
+    public void setDataProvider(PageDataProvider<T> dataProvider) {
+        this.dataProvider = dataProvider;
+        this.pageWindow = dataProvider == null ? null : new PageWindow<>(dataProvider);
+        // the actual page keeps its slice, so its clicks resolve the content
+        if(pageWindow != null) pageWindow.setPinned(page -> page == this.page);
+    }
+
+    /**
+     * Drops the pages sliced from the data provider, call it when its data changed.
+     */
+    public void invalidatePages() {
+        if(pageWindow != null) pageWindow.invalidate();
+    }
+
+    public ItemStack getPlaceholderItem() {
+        return placeholderItem;
+    }
+
+    /**
+     * Sets the item shown in the data slots while the page of an async data provider is loading.
+     */
+    public void setPlaceholderItem(ItemStack placeholderItem) {
+        this.placeholderItem = placeholderItem;
+    }
+
+    public int getContentSize() {
+        return dataProvider != null ? dataProvider.size() : contentList.size();
+    }
+
+    /**
+     * Returns the content at the absolute index.
+     *
+     * @return the content, or null if it is out of bounds or its page is not loaded
+     */
+    public T getContent(int index) {
+        if(pageWindow != null) return pageWindow.get(index, dataSlots.size());
+        if(index < 0 || index >= contentList.size()) return null;
+        return contentList.get(index);
+    }
+
+    public boolean isActualPageLoaded() {
+        return pageWindow == null || !dataProvider.isAsync() || pageWindow.isLoaded(page, dataSlots.size());
+    }
+
+    /**
+     * Runs the callback on the main thread once the actual page is loaded, right away if it is already.
+     */
+    public void whenActualPageLoaded(Runnable callback) {
+        if(pageWindow == null){
+            callback.run();
+            return;
+        }
+        pageWindow.whenLoaded(page, dataSlots.size(), callback);
+    }
+
+    /**
+     * Loads the pages next to the actual page in the background, only for async data providers.
+     */
+    public void prefetch() {
+        if(pageWindow != null) pageWindow.prefetch(page, dataSlots.size());
+    }
+
     public void setButtonsPage(InvCustomPagesContentMultiple inventoryCustomPages) {
         if(getItemBack() == null || getItemNext() == null) return;
         if(getActualPage() == getMinPage() ){
-            inventoryCustomPages.getInventory().setItem(getItemBack().getSlot(), null);
+            inventoryCustomPages.removeItemInterfaceInv(getItemBack());
         }
         if( getActualPage() == getMaxPage() ){
-            inventoryCustomPages.getInventory().setItem(getItemNext().getSlot(), null);
+            inventoryCustomPages.removeItemInterfaceInv(getItemNext());
         }
 
         if(getActualPage() > getMinPage() ) {
@@ -168,14 +270,16 @@ public class PageCustomInfo<T> {
 
     public void removeButtonsPage(InvCustomPagesContentMultiple inventoryCustomPages) {
         if(getItemBack() == null || getItemNext() == null) return;
-        inventoryCustomPages.getInventory().setItem(getItemBack().getSlot(), null);
-        inventoryCustomPages.getInventory().setItem(getItemNext().getSlot(), null);
+        inventoryCustomPages.removeItemInterfaceInv(getItemBack());
+        inventoryCustomPages.removeItemInterfaceInv(getItemNext());
     }
 
     public void clearDataSlots(InvCustom inventoryCustom) {
+        InvCustom.Update update = inventoryCustom.beginUpdate();
         for(int i : getDataSlots()){
-            inventoryCustom.getInventory().setItem(i, null);
+            update.clear(i);
         }
+        update.apply();
     }
 
     public void setActualPage(int i) {
@@ -2,6 +2,11 @@ package dev.wuason.mechanics.invmechanic.types.pages.content.normal;
 
 import dev.wuason.mechanics.Mechanics;
 import dev.wuason.mechanics.invmechanic.events.CloseEvent;
+import dev.wuason.mechanics.invmechanic.types.pages.content.PageContentEntry;
+import dev.wuason.mechanics.invmechanic.types.pages.content.PageContentIndex;
+import dev.wuason.mechanics.invmechanic.types.pages.content.PageDataProvider;
+import dev.wuason.mechanics.invmechanic.types.pages.content.PageRenderJob;
+import dev.wuason.mechanics.invmechanic.types.pages.content.PageWindow;
 import dev.wuason.mechanics.invmechanic.types.pages.content.normal.events.ContentClickEvent;
 import dev.wuason.mechanics.invmechanic.types.pages.content.normal.events.NextPageEvent;
 import dev.wuason.mechanics.invmechanic.types.pages.content.normal.events.OpenPageEvent;
@@ -11,28 +16,38 @@ import dev.wuason.mechanics.invmechanic.types.pages.content.normal.items.NextPag
 import dev.wuason.mechanics.invmechanic.types.pages.content.normal.items.PreviousPageItem;
 import dev.wuason.mechanics.invmechanic.types.InvCustom;
 import dev.wuason.mechanics.items.ItemBuilder;
+import org.bukkit.Bukkit;
 import org.bukkit.Material;
-import org.bukkit.NamespacedKey;
 import org.bukkit.entity.Player;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
-import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.scheduler.BukkitTask;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.UUID;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 
 public class InvCustomPagesContentManager<T> {
     private HashMap<Integer, InvCustomPagesContent> pages = new HashMap<>();
+    private final HashMap<Integer, BukkitTask> pageExpirations = new HashMap<>();
+    private long pageCacheTtl = 0L;
+    private List<Integer> personalSlots = new ArrayList<>();
+    private final HashMap<UUID, InvCustomPagesContent> personalPages = new HashMap<>();
     private List<T> contentList = new ArrayList<>();
+    private PageDataProvider<T> dataProvider = null;
+    private PageWindow<T> pageWindow = null;
+    private ItemStack placeholderItem = new ItemBuilder(Material.GRAY_STAINED_GLASS_PANE).buildWithVoidName();
+    private boolean asyncRender = false;
+    private ItemStack renderingItem = new ItemBuilder(Material.LIGHT_GRAY_STAINED_GLASS_PANE).setName("Rendering...").build();
+    private final HashMap<Integer, PageRenderJob> renderJobs = new HashMap<>();
     private List<Integer> dataSlots = new ArrayList<>();
     private ItemInterface itemBack;
     private ItemInterface itemNext;
-    public final static String NAMESPACED_CONTENT_KEY = "icm_content";
+    public final static String NAMESPACED_CONTENT_KEY = PageContentIndex.NAMESPACED_CONTENT_KEY;
     private BiFunction<InvCustomPagesContentManager<T>,Integer, InvCustomPagesContent> defaultInventory = null;
     private List<Consumer<InvCustomPagesContent>> inventoryCustomPagesListenerCreate = new ArrayList<>();
     private List<Consumer<NextPageEvent>> nextPageListeners = new ArrayList<>();
@@ -45,6 +60,11 @@ public class InvCustomPagesContentManager<T> {
         setContentList(contentList);
         setDefaultInventory(defaultInventory);
     }
+    public InvCustomPagesContentManager(List<Integer> dataSlots, PreviousPageItem itemBack, NextPageItem itemNext, BiFunction<InvCustomPagesContentManager<T>, Integer, InvCustomPagesContent> defaultInventory, PageDataProvider<T> dataProvider) {
+        this(dataSlots, itemBack, itemNext);
+        setDataProvider(dataProvider);
+        setDefaultInventory(defaultInventory);
+    }
     public InvCustomPagesContentManager(List<Integer> dataSlots, PreviousPageItem itemBack, NextPageItem itemNext) {
         this.dataSlots = dataSlots;
         this.itemBack = itemBack;
@@ -59,6 +79,9 @@ public class InvCustomPagesContentManager<T> {
 
 
     //******************** EVENTS ********************
+    /**
+     * Renders the item of a content, with async rendering it is called off the main thread.
+     */
     public ItemStack onContentPage(int page, int slot, T content){
         return null;
     }
@@ -73,6 +96,13 @@ public class InvCustomPagesContentManager<T> {
     }
     public void onOpenPage(OpenPageEvent event){
     }
+    /**
+     * Renders a personal slot of a page for a player, the content is null if the slot is not a data slot
+     * with content. Returning null keeps the item of the shared page.
+     */
+    public ItemStack onPersonalSlot(Player player, int page, int slot, T content){
+        return null;
+    }
 
     //******************** LISTENERS ********************
     //add
@@ -170,10 +200,11 @@ public class InvCustomPagesContentManager<T> {
 
     public void clearContent(int page){
         if(!pages.containsKey(page)) return;
-        InvCustom inventoryCustom = pages.get(page);
-        for(Map.Entry<Integer, T> entry : getContentPage(page).entrySet()){
-            inventoryCustom.getInventory().clear(entry.getKey());
+        InvCustom.Update update = pages.get(page).beginUpdate();
+        for(PageContentEntry<T> entry : getContentPageEntries(page)){
+            update.clear(entry.slot());
         }
+        update.apply();
     }
 
     public void removeContentAndUpdate(T t, int page){
@@ -185,6 +216,60 @@ public class InvCustomPagesContentManager<T> {
         setContent(page);
     }
 
+    //******************** DATA PROVIDER ********************
+
+    public PageDataProvider<T> getDataProvider() {
+        return dataProvider;
+    }
+
+    /**
+     * Renders the pages from a data provider instead of the content list, keeping only a small window of
+     * sliced and rendered pages. Null goes back to the content list.
+     */
+    public void setDataProvider(PageDataProvider<T> dataProvider) {
+        this.dataProvider = dataProvider;
+        this.pageWindow = dataProvider == null ? null : new PageWindow<>(dataProvider);
+        // the pages open or cached keep their slice, so their clicks resolve the content
+        if(pageWindow != null) pageWindow.setPinned(page -> pages.containsKey(page));
+    }
+
+    public PageWindow<T> getPageWindow() {
+        return pageWindow;
+    }
+
+    /**
+     * Drops the pages sliced and rendered from the data provider, call it when its data changed.
+     */
+    public void invalidatePages(){
+        if(pageWindow != null) pageWindow.invalidate();
+    }
+
+    public ItemStack getPlaceholderItem() {
+        return placeholderItem;
+    }
+
+    /**
+     * Sets the item shown in the data slots while the page of an async data provider is loading.
+     */
+    public void setPlaceholderItem(ItemStack placeholderItem) {
+        this.placeholderItem = placeholderItem;
+    }
+
+    public int getContentSize(){
+        return dataProvider != null ? dataProvider.size() : contentList.size();
+    }
+
+    /**
+     * Returns the content at the absolute index.
+     *
+     * @return the content, or null if it is out of bounds or its page is not loaded
+     */
+    public T getContent(int index){
+        if(pageWindow != null) return pageWindow.get(index, dataSlots.size());
+        if(index < 0 || index >= contentList.size()) return null;
+        return contentList.get(index);
+    }
+
     //******************** DATA SLOTS ********************
 
     public List<Integer> getDataSlots() {
@@ -205,17 +290,14 @@ public class InvCustomPagesContentManager<T> {
 
     public void clearDataSlots(int page){
         if(!pages.containsKey(page)) return;
-        InvCustom inventoryCustom = pages.get(page);
-        for(int dataSlot : dataSlots){
-            inventoryCustom.getInventory().clear(dataSlot);
-        }
+        clearDataSlotsUpdate(pages.get(page)).apply();
     }
 
     //******************** PAGES ********************
     //nextPage
     public int nextPage(int page) {
         int a = page * dataSlots.size();
-        if(a < contentList.size()){
+        if(a < getContentSize()){
             return page + 1;
         }
         return -1;
@@ -230,8 +312,9 @@ public class InvCustomPagesContentManager<T> {
     }
 
     public int getMaxPage() {
-        int a = contentList.size() / dataSlots.size();
-        if(contentList.size() % dataSlots.size() != 0){
+        int size = getContentSize();
+        int a = size / dataSlots.size();
+        if(size % dataSlots.size() != 0){
             a++;
         }
         return a - 1 == -1 ? 0 : a - 1;
@@ -243,7 +326,7 @@ public class InvCustomPagesContentManager<T> {
 
     public boolean isPossibleNextPage(int page){
         int a = (page * dataSlots.size()) + dataSlots.size();
-        return a < contentList.size();
+        return a < getContentSize();
     }
 
     public boolean isPossiblePreviousPage(int page){
@@ -251,13 +334,19 @@ public class InvCustomPagesContentManager<T> {
     }
 
     public InvCustomPagesContent createPage(int page){
+        InvCustomPagesContent inventoryCustomPagesContent = buildPage(page);
+        removePage(page);
+        pages.put(page, inventoryCustomPagesContent);
+        return inventoryCustomPagesContent;
+    }
+
+    private InvCustomPagesContent buildPage(int page){
         InvCustomPagesContent inventoryCustomPagesContent = onPageCreate(this, page);
         if(inventoryCustomPagesContent == null){
             inventoryCustomPagesContent = defaultInventory.apply(this, page);
         }
         if(inventoryCustomPagesContent == null) throw new NullPointerException("InventoryCustomPagesContent is null");
         inventoryCustomPagesContent.setPage(page);
-        pages.put(page, inventoryCustomPagesContent);
         for(Consumer<InvCustomPagesContent> consumer : inventoryCustomPagesListenerCreate) consumer.accept(inventoryCustomPagesContent);
         return inventoryCustomPagesContent;
     }
@@ -265,23 +354,41 @@ public class InvCustomPagesContentManager<T> {
 
     /**
      * Opens a custom inventory page for a player.
+     * The page is shared by every viewer, with personal slots the player gets a copy of it
+     * where only the personal slots are rendered for them.
      *
      * @param player the player to open the inventory for
      * @param page   the page number of the inventory
      */
     //******************** OPEN ********************
     public void open(Player player, int page){
+        cancelExpiration(page);
         if(!pages.containsKey(page)){
             createPage(page);
             setContent(page);
             setButtonsPage(page);
         }
         InvCustomPagesContent inventoryCustomPagesContent = pages.get(page);
+        // the personal page the player is leaving, its close event no longer finds it in the map
+        InvCustomPagesContent previous = null;
+        if(!personalSlots.isEmpty()){
+            inventoryCustomPagesContent = buildPage(page);
+            copyPersonalPage(player, pages.get(page), inventoryCustomPagesContent);
+            previous = personalPages.put(player.getUniqueId(), inventoryCustomPagesContent);
+        }
         OpenPageEvent openPageEvent = new OpenPageEvent(player, inventoryCustomPagesContent);
         onOpenPage(openPageEvent);
         openPageListeners.forEach(e -> e.accept(openPageEvent));
-        if(openPageEvent.isCancelled()) return;
+        if(openPageEvent.isCancelled()){
+            personalPages.remove(player.getUniqueId(), inventoryCustomPagesContent);
+            if(previous == null) return;
+            // the player keeps viewing the previous page
+            if(player.getOpenInventory().getTopInventory().getHolder() == previous) personalPages.put(player.getUniqueId(), previous);
+            else releasePage(previous.getPage());
+            return;
+        }
         inventoryCustomPagesContent.open(player);
+        if(previous != null) releasePage(previous.getPage());
     }
 
     /**
@@ -294,6 +401,7 @@ public class InvCustomPagesContentManager<T> {
      * @param page   the page number to open
      */
     public void openSimple(Player player, int page){
+        cancelExpiration(page);
         if(!pages.containsKey(page)){
             createPage(page);
         }
@@ -305,6 +413,183 @@ public class InvCustomPagesContentManager<T> {
         inventoryCustomPagesContent.open(player);
     }
 
+    //******************** PAGE CACHE ********************
+
+    public long getPageCacheTtl() {
+        return pageCacheTtl;
+    }
+
+    /**
+     * Keeps the pages with their rendered items for the given ticks after their last viewer leaves,
+     * so the next viewers reuse them. 0 drops them right away.
+     */
+    public void setPageCacheTtl(long ticks) {
+        this.pageCacheTtl = Math.max(ticks, 0L);
+    }
+
+    public HashMap<Integer, InvCustomPagesContent> getPages() {
+        return pages;
+    }
+
+    /**
+     * Renders the page again if someone is viewing it, otherwise drops it so it is rendered with the next open.
+     *
+     * @param page the page number
+     */
+    public void invalidate(int page){
+        if(pageWindow != null) pageWindow.invalidate(page);
+        if(!pages.containsKey(page)) return;
+        if(!isPageInUse(page)){
+            cancelExpiration(page);
+            removePage(page);
+            return;
+        }
+        setContent(page);
+        setButtonsPage(page);
+        refreshPersonalPages(page);
+    }
+
+    /**
+     * Invalidates every page.
+     */
+    public void invalidateAll(){
+        invalidatePages();
+        for(int page : new ArrayList<>(pages.keySet())) invalidate(page);
+    }
+
+    private boolean isPageInUse(int page){
+        InvCustomPagesContent shared = pages.get(page);
+        if(shared != null && !shared.getInventory().getViewers().isEmpty()) return true;
+        for(InvCustomPagesContent personal : personalPages.values()){
+            if(personal.getPage() == page) return true;
+        }
+        return false;
+    }
+
+    private void releasePage(int page){
+        if(!pages.containsKey(page) || isPageInUse(page)) return;
+        if(pageCacheTtl <= 0L){
+            removePage(page);
+            return;
+        }
+        cancelExpiration(page);
+        pageExpirations.put(page, Bukkit.getScheduler().runTaskLater(Mechanics.getInstance(), () -> {
+            pageExpirations.remove(page);
+            if(!isPageInUse(page)) removePage(page);
+        }, pageCacheTtl));
+    }
+
+    private void removePage(int page){
+        cancelRender(page);
+        pages.remove(page);
+    }
+
+    private void cancelExpiration(int page){
+        BukkitTask task = pageExpirations.remove(page);
+        if(task != null) task.cancel();
+    }
+
+    //******************** ASYNC RENDER ********************
+
+    public boolean isAsyncRender() {
+        return asyncRender;
+    }
+
+    /**
+     * Renders the content items on an async task, showing the rendering item in their slots until they are ready.
+     * {@link #onContentPage(int, int, Object)} is then called off the main thread, so it must only build the item.
+     */
+    public void setAsyncRender(boolean asyncRender) {
+        this.asyncRender = asyncRender;
+    }
+
+    public ItemStack getRenderingItem() {
+        return renderingItem;
+    }
+
+    /**
+     * Sets the item shown in the content slots while their items are rendered.
+     */
+    public void setRenderingItem(ItemStack renderingItem) {
+        this.renderingItem = renderingItem;
+    }
+
+    private void cancelRender(int page){
+        PageRenderJob job = renderJobs.remove(page);
+        if(job != null) job.cancel();
+    }
+
+    private void renderContentAsync(int page, InvCustom inventoryCustom, List<PageContentEntry<T>> entries, Consumer<ItemStack[]> onRendered){
+        cancelRender(page);
+        InvCustom.Update update = clearDataSlotsUpdate(inventoryCustom);
+        for(PageContentEntry<T> entry : entries){
+            update.set(entry.slot(), renderingItem);
+        }
+        update.apply();
+        renderJobs.put(page, PageRenderJob.render(entries, entry -> renderContent(page, entry), rendered -> {
+            renderJobs.remove(page);
+            if(pages.get(page) != inventoryCustom) return;
+            if(onRendered != null) onRendered.accept(rendered);
+            setRenderedContent(inventoryCustom, entries, rendered);
+            refreshPersonalPages(page);
+        }));
+    }
+
+    private void setRenderedContent(InvCustom inventoryCustom, List<PageContentEntry<T>> entries, ItemStack[] rendered){
+        InvCustom.Update update = clearDataSlotsUpdate(inventoryCustom);
+        for(int i = 0; i < rendered.length; i++){
+            update.set(entries.get(i).slot(), rendered[i]);
+        }
+        update.apply();
+    }
+
+    //******************** PERSONAL SLOTS ********************
+
+    public List<Integer> getPersonalSlots() {
+        return personalSlots;
+    }
+
+    /**
+     * Sets the slots rendered for each player with {@link #onPersonalSlot(Player, int, int, Object)},
+     * the rest of the page is shared by every viewer.
+     */
+    public void setPersonalSlots(List<Integer> personalSlots) {
+        this.personalSlots = new ArrayList<>(personalSlots);
+    }
+
+    public HashMap<UUID, InvCustomPagesContent> getPersonalPages() {
+        return personalPages;
+    }
+
+    private void copyPersonalPage(Player player, InvCustomPagesContent shared, InvCustomPagesContent personal){
+        int page = shared.getPage();
+        personal.copyContentsFrom(shared);
+        HashMap<Integer, PageContentEntry<T>> entries = new HashMap<>();
+        for(PageContentEntry<T> entry : getContentPageEntries(page)) entries.put(entry.slot(), entry);
+        for(int slot : personalSlots){
+            PageContentEntry<T> entry = entries.get(slot);
+            ItemStack itemStack = onPersonalSlot(player, page, slot, entry == null ? null : entry.content());
+            if(itemStack == null) continue;
+            if(entry != null){
+                ItemMeta itemMeta = itemStack.getItemMeta();
+                PageContentIndex.write(itemMeta, entry.index(), entry.slot(), page);
+                itemStack.setItemMeta(itemMeta);
+            }
+            personal.setItemInSlot(slot, itemStack);
+        }
+    }
+
+    private void refreshPersonalPages(int page){
+        InvCustomPagesContent shared = pages.get(page);
+        if(shared == null) return;
+        for(UUID uuid : new ArrayList<>(personalPages.keySet())){
+            InvCustomPagesContent personal = personalPages.get(uuid);
+            Player player = Bukkit.getPlayer(uuid);
+            if(personal.getPage() != page || player == null) continue;
+            copyPersonalPage(player, shared, personal);
+        }
+    }
+
     //******************** DEFAULT INVENTORY ********************
     public void setDefaultInventory(BiFunction<InvCustomPagesContentManager<T>,Integer, InvCustomPagesContent> function){
         this.defaultInventory = function;
@@ -321,34 +606,115 @@ public class InvCustomPagesContentManager<T> {
      */
     public HashMap<Integer, T> getContentPage(int page){
         HashMap<Integer, T> contentPage = new HashMap<>();
-        int a = page * dataSlots.size();
-        for (int i : dataSlots) {
-            if(a >= contentList.size()){
-                break;
-            }
-            contentPage.put(i, contentList.get(a));
-            a++;
+        for(PageContentEntry<T> entry : getContentPageEntries(page)){
+            contentPage.put(entry.slot(), entry.content());
         }
         return contentPage;
     }
 
+    /**
+     * Returns the content for a specific page in the order of the data slots, each element with its slot
+     * and its absolute index in the content list.
+     *
+     * @param page the page number
+     * @return the entries of the specified page
+     */
+    public List<PageContentEntry<T>> getContentPageEntries(int page){
+        int start = page * dataSlots.size();
+        if(pageWindow != null){
+            List<T> slice = start < 0 ? null : pageWindow.getSlice(page, dataSlots.size());
+            if(slice == null) return new ArrayList<>();
+            int size = Math.min(slice.size(), dataSlots.size());
+            List<PageContentEntry<T>> entries = new ArrayList<>(size);
+            for(int i = 0; i < size; i++){
+                entries.add(new PageContentEntry<>(dataSlots.get(i), start + i, slice.get(i)));
+            }
+            return entries;
+        }
+        int end = Math.min(start + dataSlots.size(), contentList.size());
+        if(start < 0 || start >= end) return new ArrayList<>();
+        List<PageContentEntry<T>> entries = new ArrayList<>(end - start);
+        for(int i = start; i < end; i++){
+            entries.add(new PageContentEntry<>(dataSlots.get(i - start), i, contentList.get(i)));
+        }
+        return entries;
+    }
+
     /**
      * Sets the content of the specified page in the custom inventory.
+     * With an async data provider, placeholders are shown until the page is loaded.
      *
      * @param page the page number to set the content for
      */
     public void setContent(int page){
-        clearDataSlots(page);
+        if(pageWindow != null){
+            setProviderContent(page);
+            return;
+        }
+        cancelRender(page);
+        if(asyncRender){
+            renderContentAsync(page, pages.get(page), getContentPageEntries(page), null);
+            return;
+        }
+        InvCustom.Update update = clearDataSlotsUpdate(pages.get(page));
+        for(PageContentEntry<T> entry : getContentPageEntries(page)){
+            update.set(entry.slot(), renderContent(page, entry));
+        }
+        update.apply();
+    }
+
+    // stages the data slots cleared, so only the slots that change are set when the content is staged too
+    private InvCustom.Update clearDataSlotsUpdate(InvCustom inventoryCustom){
+        InvCustom.Update update = inventoryCustom.beginUpdate();
+        for(int dataSlot : dataSlots){
+            update.clear(dataSlot);
+        }
+        return update;
+    }
+
+    private void setProviderContent(int page){
+        cancelRender(page);
         InvCustom inventoryCustom = pages.get(page);
-        for(Map.Entry<Integer, T> entry : getContentPage(page).entrySet()){
-            ItemStack itemStack = onContentPage(page, entry.getKey(), entry.getValue());
-            if(itemStack == null) itemStack = new ItemBuilder(Material.BOOK).setName(entry.getValue().toString()).build();
-            ItemMeta itemMeta = itemStack.getItemMeta();
-            String data = contentList.indexOf(entry.getValue()) + ":" + entry.getKey() + ":" + page;
-            itemMeta.getPersistentDataContainer().set(new NamespacedKey(Mechanics.getInstance(), NAMESPACED_CONTENT_KEY), PersistentDataType.STRING, data);
-            itemStack.setItemMeta(itemMeta);
-            inventoryCustom.getInventory().setItem(entry.getKey(), itemStack);
+        int pageSize = dataSlots.size();
+        if(dataProvider.isAsync() && !pageWindow.isLoaded(page, pageSize)){
+            InvCustom.Update update = inventoryCustom.beginUpdate();
+            for(int dataSlot : dataSlots){
+                update.set(dataSlot, placeholderItem);
+            }
+            update.apply();
+            pageWindow.whenLoaded(page, pageSize, () -> {
+                if(pages.get(page) != inventoryCustom) return;
+                setContent(page);
+                setButtonsPage(page);
+                refreshPersonalPages(page);
+            });
+            return;
         }
+        List<PageContentEntry<T>> entries = getContentPageEntries(page);
+        ItemStack[] rendered = pageWindow.getRendered(page, pageSize);
+        if(rendered == null || rendered.length != entries.size()){
+            if(asyncRender){
+                renderContentAsync(page, inventoryCustom, entries, items -> pageWindow.setRendered(page, pageSize, items));
+                pageWindow.prefetch(page, pageSize);
+                return;
+            }
+            rendered = new ItemStack[entries.size()];
+            for(int i = 0; i < rendered.length; i++){
+                rendered[i] = renderContent(page, entries.get(i));
+            }
+            pageWindow.setRendered(page, pageSize, rendered);
+        }
+        setRenderedContent(inventoryCustom, entries, rendered);
+        pageWindow.prefetch(page, pageSize);
+    }
+
+    private ItemStack renderContent(int page, PageContentEntry<T> entry){
+        ItemStack itemStack = onContentPage(page, entry.slot(), entry.content());
+        if(itemStack == null) itemStack = new ItemBuilder(Material.BOOK).setName(entry.content().toString()).build();
+        ItemMeta itemMeta = itemStack.getItemMeta();
+        PageContentIndex.write(itemMeta, entry.index(), entry.slot(), page);
+        itemStack.setItemMeta(itemMeta);
+        return itemStack;
     }
 
 
@@ -357,10 +723,10 @@ public class InvCustomPagesContentManager<T> {
     public void setButtonsPage(int page) {
         if(getItemBack() == null || getItemNext() == null || !pages.containsKey(page)) return;
         if(page == getMinPage() ){
-            pages.get(page).getInventory().setItem(getItemBack().getSlot(), null);
+            pages.get(page).removeItemInterfaceInv(getItemBack());
         }
         if( page == getMaxPage() ){
-            pages.get(page).getInventory().setItem(getItemNext().getSlot(), null);
+            pages.get(page).removeItemInterfaceInv(getItemNext());
         }
 
         if(page > getMinPage() ) {
@@ -372,8 +738,8 @@ public class InvCustomPagesContentManager<T> {
     }
     public void removeButtonsPage(int page) {
         if(getItemBack() == null || getItemNext() == null || !pages.containsKey(page)) return;
-        pages.get(page).getInventory().setItem(getItemBack().getSlot(), null);
-        pages.get(page).getInventory().setItem(getItemNext().getSlot(), null);
+        pages.get(page).removeItemInterfaceInv(getItemBack());
+        pages.get(page).removeItemInterfaceInv(getItemNext());
     }
 
     public void setButtons(ItemInterface itemBack, ItemInterface itemNext){
@@ -399,26 +765,41 @@ public class InvCustomPagesContentManager<T> {
 
     //******************** HANDLERS ********************
     public void handleClose(CloseEvent event){
+        if(event.isCancelled()) return;
         InvCustomPagesContent inventoryCustomPagesContent = (InvCustomPagesContent) event.getEvent().getInventory().getHolder();
-        if(inventoryCustomPagesContent.getInventory().getViewers().size() == 1){
-            pages.remove(inventoryCustomPagesContent.getPage());
-
+        if(personalPages.remove(event.getEvent().getPlayer().getUniqueId(), inventoryCustomPagesContent)){
+            releasePage(inventoryCustomPagesContent.getPage());
+            return;
+        }
+        if(inventoryCustomPagesContent.getInventory().getViewers().size() == 1 && pages.get(inventoryCustomPagesContent.getPage()) == inventoryCustomPagesContent){
+            if(pageCacheTtl <= 0L && personalPages.isEmpty()){
+                removePage(inventoryCustomPagesContent.getPage());
+                return;
+            }
+            // the closing player is still a viewer until the event ends
+            Bukkit.getScheduler().runTask(Mechanics.getInstance(), () -> releasePage(inventoryCustomPagesContent.getPage()));
         }
     }
+    private boolean isPlaceholder(ItemStack itemStack){
+        if(itemStack == null) return false;
+        return (pageWindow != null && placeholderItem.isSimilar(itemStack)) || (asyncRender && renderingItem.isSimilar(itemStack));
+    }
+
     public void handleClick(InventoryClickEvent event){
         //onContentClick
-        if(event.getCurrentItem() == null || event.getCurrentItem().getItemMeta() == null) return;
-        if(event.getCurrentItem().getItemMeta().getPersistentDataContainer().has(new NamespacedKey(Mechanics.getInstance(), NAMESPACED_CONTENT_KEY), PersistentDataType.STRING)){
-            String data = event.getCurrentItem().getItemMeta().getPersistentDataContainer().get(new NamespacedKey(Mechanics.getInstance(), NAMESPACED_CONTENT_KEY), PersistentDataType.STRING);
-            String[] args = data.split(":");
-            int slot = Integer.parseInt(args[1]);
-            int page = Integer.parseInt(args[2]);
-            T content = contentList.get(Integer.parseInt(args[0]));
-            event.setCancelled(true);
-            ContentClickEvent contentClickEvent = new ContentClickEvent(pages.get(page), event, content);
-            onContentClick(contentClickEvent);
-            for(Consumer<ContentClickEvent> consumer : contentClickListeners) consumer.accept(contentClickEvent);
+        PageContentIndex contentIndex = PageContentIndex.read(event.getCurrentItem());
+        if(contentIndex == null){
+            //placeholders of a loading or rendering page
+            if(event.getRawSlot() < event.getInventory().getSize() && dataSlots.contains(event.getRawSlot()) && isPlaceholder(event.getCurrentItem())) event.setCancelled(true);
+            return;
         }
+        event.setCancelled(true);
+        T content = getContent(contentIndex.index());
+        if(content == null) return;
+        InvCustomPagesContent inventoryCustomPagesContent = event.getInventory().getHolder() instanceof InvCustomPagesContent holder ? holder : pages.get(contentIndex.page());
+        ContentClickEvent contentClickEvent = new ContentClickEvent(inventoryCustomPagesContent, event, content);
+        onContentClick(contentClickEvent);
+        for(Consumer<ContentClickEvent> consumer : contentClickListeners) consumer.accept(contentClickEvent);
     }
 
 }